@@ -32,6 +32,10 @@ val javaExampleTestImplementation: Configuration by configurations.getting { ext
 createSourceSet("kotlinExampleTest")
 val kotlinExampleTestImplementation: Configuration by configurations.getting { extendsFrom(configurations.implementation.get()) }
 
+createSourceSet("jmh")
+val jmhImplementation: Configuration by configurations.getting { extendsFrom(configurations.implementation.get()) }
+val jmhAnnotationProcessor: Configuration by configurations.getting
+
 nexusPublishing {
     val nexusUsername: String? by project
     val nexusPassword: String? by project
@@ -57,6 +61,7 @@ dependencies {
     api(libs.kotlinReflect)
 
     implementation(libs.kotlinCoroutines)
+    implementation(libs.kotlinxMetadataJvm)
     implementation(libs.junitJupiterParams)
     implementation(libs.junitJupiterApi)
     implementation(libs.junitJupiterEngine)
@@ -77,6 +82,8 @@ dependencies {
     javaExampleTestImplementation(libs.junitPlatformLauncher)
     kotlinExampleTestImplementation(libs.junitPlatformTestKit)
     kotlinExampleTestImplementation(libs.junitPlatformLauncher)
+    jmhImplementation(libs.jmhCore)
+    jmhAnnotationProcessor(libs.jmhGeneratorAnnprocess)
 }
 
 node {
@@ -93,6 +100,12 @@ tasks {
         }
     }
 
+    jar {
+        manifest {
+            attributes(mapOf("Implementation-Version" to project.version))
+        }
+    }
+
     register<Jar>("sourcesJar") {
         archiveClassifier.set("sources")
         from(project.the<SourceSetContainer>()["main"].allSource)
@@ -160,6 +173,15 @@ tasks {
         shouldRunAfter("junitIntegrationTest")
     }
 
+    register<JavaExec>("jmh") {
+        description = "Runs JMH benchmarks. Use -Pjmh.includes=<regex> to select benchmarks."
+        group = "verification"
+
+        classpath = sourceSets["jmh"].runtimeClasspath
+        mainClass.set("org.openjdk.jmh.Main")
+        args = listOfNotNull(project.findProperty("jmh.includes")?.toString())
+    }
+
     check { dependsOn("junitIntegrationTest", "kotlinExampleTest", "javaExampleTest") }
 
     withType<Test> {
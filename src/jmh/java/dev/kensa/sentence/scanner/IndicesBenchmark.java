@@ -0,0 +1,74 @@
+package dev.kensa.sentence.scanner;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static dev.kensa.sentence.TokenType.Acronym;
+
+/**
+ * Compares {@link Indices} with the previous implementation, which swept the whole set after every insertion, when
+ * indexing long identifiers that are dense with (partly overlapping) acronyms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicesBenchmark {
+
+    @Param({"64", "256", "1024"})
+    private int identifierLength;
+
+    private int[][] ranges;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<int[]> candidates = new ArrayList<>();
+        for (int start = 0; start < identifierLength - 5; start += 1 + random.nextInt(3)) {
+            candidates.add(new int[]{start, start + 2 + random.nextInt(4)});
+        }
+        Collections.shuffle(candidates, random);
+        ranges = candidates.toArray(new int[0][]);
+    }
+
+    @Benchmark
+    public void indices(Blackhole blackhole) {
+        Indices indices = new Indices();
+        for (int[] range : ranges) {
+            indices.put(Acronym, range[0], range[1], null);
+        }
+        blackhole.consume(indices);
+    }
+
+    @Benchmark
+    public void sweepingIndices(Blackhole blackhole) {
+        SweepingIndices indices = new SweepingIndices();
+        for (int[] range : ranges) {
+            indices.put(range[0], range[1]);
+        }
+        blackhole.consume(indices);
+    }
+
+    private static class SweepingIndices {
+        private final SortedSet<Index> indices = new TreeSet<>((i1, i2) -> i1.getStart() == i2.getStart() ? Integer.compare(i2.getEnd(), i1.getEnd()) : Integer.compare(i1.getStart(), i2.getStart()));
+
+        void put(int start, int end) {
+            indices.add(new Index(Acronym, start, end, null));
+            Index lastIndex = null;
+            Iterator<Index> iterator = indices.iterator();
+            while (iterator.hasNext()) {
+                Index thisIndex = iterator.next();
+                if (lastIndex != null && lastIndex.cancels(thisIndex)) {
+                    iterator.remove();
+                } else {
+                    lastIndex = thisIndex;
+                }
+            }
+        }
+    }
+}
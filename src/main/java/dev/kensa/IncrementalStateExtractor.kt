@@ -0,0 +1,37 @@
+package dev.kensa
+
+import dev.kensa.state.CapturedInteractions
+import dev.kensa.util.KensaMap
+import java.lang.ref.WeakReference
+
+/**
+ * A [StateExtractor] that keeps its own state and is only given the entries put since it was last executed, so that
+ * repeatedly executing it, e.g. while waiting for a message to arrive, does not scan every captured interaction again.
+ * Entries are given in the order they were put, and an entry put again under the same key is given again. One that is
+ * replaced, or left out by a [dev.kensa.state.CapturePolicy], before the extractor is executed is not given at all.
+ *
+ * The state is reset whenever the extractor is executed against different interactions, e.g. in the next test.
+ */
+abstract class IncrementalStateExtractor<T> : StateExtractor<T> {
+
+    private var interactions: WeakReference<CapturedInteractions>? = null
+    private var cursor = 0L
+
+    protected abstract fun reset()
+
+    protected abstract fun accumulate(entry: KensaMap.Entry)
+
+    protected abstract fun result(): T
+
+    @Synchronized
+    final override fun execute(interactions: CapturedInteractions): T {
+        if (this.interactions?.get() !== interactions) {
+            reset()
+            this.interactions = WeakReference(interactions)
+            cursor = 0
+        }
+        cursor = interactions.forEachPutSince(cursor, ::accumulate)
+
+        return result()
+    }
+}
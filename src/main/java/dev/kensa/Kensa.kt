@@ -3,6 +3,9 @@ package dev.kensa
 import dev.kensa.Kensa.KENSA_DISABLE_OUTPUT
 import dev.kensa.Kensa.KENSA_OUTPUT_DIR
 import dev.kensa.Kensa.KENSA_OUTPUT_ROOT
+import dev.kensa.Kensa.KENSA_PARSE_CACHE_DIR
+import dev.kensa.Kensa.KENSA_SOURCE_ROOTS
+import dev.kensa.Kensa.KENSA_SVG_CACHE_DIR
 import dev.kensa.Section.*
 import dev.kensa.output.*
 import dev.kensa.render.*
@@ -11,7 +14,9 @@ import dev.kensa.sentence.Acronym
 import dev.kensa.sentence.Dictionary
 import dev.kensa.sentence.HighlightedIdentifier
 import dev.kensa.sentence.Keyword
+import dev.kensa.state.CapturePolicy
 import org.antlr.v4.runtime.atn.PredictionMode
+import java.io.File
 import java.net.MalformedURLException
 import java.net.URI
 import java.net.URL
@@ -24,6 +29,9 @@ object Kensa {
     internal const val KENSA_OUTPUT_ROOT = "kensa.output.root"
     internal const val KENSA_DISABLE_OUTPUT = "kensa.disable.output"
     internal const val KENSA_OUTPUT_DIR = "kensa-output"
+    internal const val KENSA_SOURCE_ROOTS = "kensa.source.roots"
+    internal const val KENSA_PARSE_CACHE_DIR = "kensa.parse.cache.dir"
+    internal const val KENSA_SVG_CACHE_DIR = "kensa.svg.cache.dir"
 
     @JvmStatic
     val configuration = Configuration()
@@ -119,6 +127,44 @@ object Kensa {
     fun withTestWriter(writer: TestWriter): Kensa = apply {
         configuration.testWriter = writer
     }
+
+    fun withTestWriterThreads(threads: Int): Kensa = apply {
+        require(threads > 0) { "TestWriterThreads must be greater than zero." }
+        configuration.testWriterThreads = threads
+    }
+
+    fun withSourceRoots(vararg roots: Path): Kensa = apply {
+        configuration.sourceRoots = roots.toList()
+    }
+
+    fun withExcludedSourceDirectories(vararg names: String): Kensa = apply {
+        configuration.excludedSourceDirectories = names.toSet()
+    }
+
+    fun withParseCacheDir(dir: String): Kensa = withParseCacheDir(Paths.get(dir))
+
+    fun withParseCacheDir(dir: Path): Kensa = apply {
+        configuration.parseCacheDir = dir
+    }
+
+    fun withParseCacheInBuildDir(): Kensa = withParseCacheDir(Paths.get(System.getProperty("user.dir"), "build", "kensa-parse-cache"))
+
+    fun withSvgCacheDir(dir: String): Kensa = withSvgCacheDir(Paths.get(dir))
+
+    fun withSvgCacheDir(dir: Path): Kensa = apply {
+        configuration.svgCacheDir = dir
+    }
+
+    fun withSvgCacheInBuildDir(): Kensa = withSvgCacheDir(Paths.get(System.getProperty("user.dir"), "build", "kensa-svg-cache"))
+
+    fun withSvgCacheMaxBytes(maxBytes: Long): Kensa = apply {
+        require(maxBytes >= 0) { "SvgCacheMaxBytes must not be negative." }
+        configuration.svgCacheMaxBytes = maxBytes
+    }
+
+    fun withCapturePolicy(policy: CapturePolicy): Kensa = apply {
+        configuration.capturePolicy = policy
+    }
 }
 
 enum class Section {
@@ -141,11 +187,18 @@ class Configuration(
     var antlrErrorListenerDisabled: Boolean = true,
     var umlDirectives: List<UmlDirective> = ArrayList(),
     var issueTrackerUrl: URL = defaultIssueTrackerUrl(),
-    var tabSize: Int = 5
+    var tabSize: Int = 5,
+    var sourceRoots: List<Path> = System.getProperty(KENSA_SOURCE_ROOTS, "").split(File.pathSeparator).filter { it.isNotBlank() }.map { Paths.get(it) },
+    var excludedSourceDirectories: Set<String> = setOf("build", "target", "node_modules", ".git", ".gradle", ".idea"),
+    var parseCacheDir: Path? = System.getProperty(KENSA_PARSE_CACHE_DIR)?.takeIf { it.isNotBlank() }?.let { Paths.get(it) },
+    var svgCacheDir: Path? = System.getProperty(KENSA_SVG_CACHE_DIR)?.takeIf { it.isNotBlank() }?.let { Paths.get(it) },
+    var svgCacheMaxBytes: Long = 32L * 1024 * 1024,
+    var capturePolicy: CapturePolicy = CapturePolicy.unbounded()
 ) {
 
     var indexWriter: IndexWriter = DefaultIndexWriter(this)
     var testWriter: TestWriter = DefaultTestWriter(this)
+    var testWriterThreads: Int = Runtime.getRuntime().availableProcessors()
 
     var sectionOrder: List<Section> = listOf(Buttons, Sentences, Exception)
         set(order) {
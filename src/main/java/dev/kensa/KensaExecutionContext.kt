@@ -1,16 +1,32 @@
 package dev.kensa
 
 import dev.kensa.context.TestContainer
+import dev.kensa.output.AsyncTestWriter
 import dev.kensa.output.ResultWriter
+import dev.kensa.output.TestWriter
+import dev.kensa.render.diagram.SequenceDiagramFactory
 import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource
 import java.util.*
 import java.util.Collections.synchronizedList
 
-class KensaExecutionContext internal constructor(private val resultWriter: ResultWriter) : CloseableResource {
+class KensaExecutionContext internal constructor(private val resultWriter: ResultWriter, testWriterThreads: Int) : CloseableResource {
     private val containers = synchronizedList(ArrayList<TestContainer>())
+    private val asyncTestWriter = AsyncTestWriter(testWriterThreads)
 
+    // Containers are written in the background as they close, so must be given the result of this as their writer
+    fun testWriterFor(testWriter: TestWriter): TestWriter = asyncTestWriter.writingTo(testWriter)
+
+    // The index is written even when some containers could not be, and only then are their failures reported
     override fun close() {
-        resultWriter.write(sortedContainers())
+        SequenceDiagramFactory.awaitRendering()
+        val writeFailure = runCatching { asyncTestWriter.awaitCompletion() }.exceptionOrNull()
+        try {
+            resultWriter.write(sortedContainers())
+        } catch (e: Throwable) {
+            writeFailure?.let(e::addSuppressed)
+            throw e
+        }
+        writeFailure?.let { throw it }
     }
 
     fun register(testContainer: TestContainer) {
@@ -1,25 +1,46 @@
 package dev.kensa.context
 
+import dev.kensa.IncrementalStateExtractor
 import dev.kensa.StateExtractor
-import org.awaitility.kotlin.await
+import org.awaitility.core.ConditionTimeoutException
 import java.time.Duration
 import java.time.temporal.ChronoUnit
 import kotlin.time.toJavaDuration
 
 object AssertJThen {
+    // Extractors that may depend on more than the captured interactions are still re-evaluated this often
+    private val recheckInterval = Duration.ofMillis(100)
+
     @JvmStatic
     fun <A, T> then(context: TestContext, extractor: StateExtractor<T>, assertProvider: (T?) -> A): A =
         assertProvider(extractor.execute(context.interactions))
 
     @JvmStatic
-    fun <A, T> thenEventually(duration: kotlin.time.Duration, context: TestContext, extractor: StateExtractor<T>, assertProvider: (T?) -> A): A {
-        await.atMost(duration.toJavaDuration()).untilAsserted { assertProvider(extractor.execute(context.interactions)) }
-        return assertProvider(extractor.execute(context.interactions))
-    }
+    fun <A, T> thenEventually(duration: kotlin.time.Duration, context: TestContext, extractor: StateExtractor<T>, assertProvider: (T?) -> A): A =
+        eventually(duration.toJavaDuration(), context, extractor, assertProvider)
 
     @JvmStatic
-    fun <A, T> thenEventually(timeout: Long, timeUnit: ChronoUnit, context: TestContext, extractor: StateExtractor<T>, assertProvider: (T?) -> A): A {
-        await.atMost(Duration.of(timeout, timeUnit)).untilAsserted { assertProvider(extractor.execute(context.interactions)) }
-        return assertProvider(extractor.execute(context.interactions))
+    fun <A, T> thenEventually(timeout: Long, timeUnit: ChronoUnit, context: TestContext, extractor: StateExtractor<T>, assertProvider: (T?) -> A): A =
+        eventually(Duration.of(timeout, timeUnit), context, extractor, assertProvider)
+
+    // Evaluates again when another interaction is captured, or, for extractors that are not incremental, every
+    // recheck interval. Returns the passing result instead of evaluating it a second time.
+    private fun <A, T> eventually(timeout: Duration, context: TestContext, extractor: StateExtractor<T>, assertProvider: (T?) -> A): A {
+        val interactions = context.interactions
+        val deadline = System.nanoTime() + timeout.toNanos()
+        var version = interactions.version
+
+        while (true) {
+            try {
+                return assertProvider(extractor.execute(interactions))
+            } catch (e: AssertionError) {
+                val remaining = deadline - System.nanoTime()
+                if (remaining <= 0) {
+                    throw ConditionTimeoutException("Assertion condition was not fulfilled within $timeout.", e)
+                }
+                val wait = Duration.ofNanos(remaining).let { if (extractor is IncrementalStateExtractor<*>) it else minOf(recheckInterval, it) }
+                version = interactions.awaitChange(version, wait)
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,24 @@
 package dev.kensa.context
 
+import dev.kensa.IncrementalStateExtractor
 import dev.kensa.StateExtractor
 import io.kotest.assertions.failure
 import io.kotest.assertions.nondeterministic.*
 import io.kotest.matchers.Matcher
 import io.kotest.matchers.invokeMatcher
-import kotlinx.coroutines.delay
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.runInterruptible
 import kotlin.time.Duration
 import kotlin.time.Duration.Companion.ZERO
 import kotlin.time.Duration.Companion.milliseconds
 import kotlin.time.Duration.Companion.seconds
+import kotlin.time.TimeSource
+import kotlin.time.toJavaDuration
 
 object KotestThen {
+    private val recheckInterval = 100.milliseconds
+
     fun <T> then(testContext: TestContext, extractor: StateExtractor<T>, match: Matcher<T>) {
         then(testContext, extractor) {
             invokeMatcher(this, match)
@@ -35,7 +42,9 @@ object KotestThen {
     }
 
     suspend fun <T> thenEventually(duration: Duration = 10.seconds, testContext: TestContext, extractor: StateExtractor<T>, match: Matcher<T>) {
-        thenEventually(ZERO, duration, 25.milliseconds, testContext, extractor, match)
+        thenEventually(duration, testContext, extractor) {
+            invokeMatcher(this, match)
+        }
     }
 
     suspend fun <T> thenEventually(initialDelay: Duration = ZERO, duration: Duration = 10.seconds, interval: Duration = 25.milliseconds, testContext: TestContext, extractor: StateExtractor<T>, match: Matcher<T>) {
@@ -44,8 +53,35 @@ object KotestThen {
         }
     }
 
+    /**
+     * Re-evaluates as soon as another interaction is captured, rather than polling at an interval, until the block
+     * passes or the duration is up. Extractors other than an [IncrementalStateExtractor] may read state from elsewhere,
+     * e.g. a fake or a queue, so they are also re-evaluated every [recheckInterval].
+     */
     suspend fun <T> thenEventually(duration: Duration = 10.seconds, testContext: TestContext, extractor: StateExtractor<T>, block: T.() -> Unit) {
-        thenEventually(ZERO, duration, testContext = testContext, extractor = extractor, block = block)
+        val interactions = testContext.interactions
+        val deadline = TimeSource.Monotonic.markNow() + duration
+        var version = interactions.version
+
+        while (true) {
+            val failure = try {
+                block(extractor.execute(interactions))
+                return
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Throwable) {
+                e
+            }
+
+            val remaining = -deadline.elapsedNow()
+            if (!remaining.isPositive()) {
+                if (failure is AssertionError) throw failure
+                else throw failure(failure.message ?: "eventually block failed", failure)
+            }
+            val since = version
+            val wait = if (extractor is IncrementalStateExtractor<*>) remaining else minOf(recheckInterval, remaining)
+            version = runInterruptible(Dispatchers.IO) { interactions.awaitChange(since, wait.toJavaDuration()) }
+        }
     }
 
     suspend fun <T> thenEventually(initialDelay: Duration = ZERO, duration: Duration = 10.seconds, interval: Duration = 25.milliseconds, testContext: TestContext, extractor: StateExtractor<T>, block: T.() -> Unit) {
@@ -7,6 +7,7 @@ import dev.kensa.context.TestContainerFactory
 import dev.kensa.context.TestContext
 import dev.kensa.context.TestContextHolder
 import dev.kensa.output.ResultWriter
+import dev.kensa.parse.RealParserCache
 import dev.kensa.parse.TestInvocationParser
 import dev.kensa.parse.java.JavaMethodParser
 import dev.kensa.parse.kotlin.KotlinFunctionParser
@@ -21,12 +22,12 @@ import java.time.Duration
 import java.time.temporal.ChronoUnit
 
 class KensaExtension : Extension, BeforeAllCallback, BeforeEachCallback,
-    AfterTestExecutionCallback, InvocationInterceptor {
+    AfterTestExecutionCallback, AfterAllCallback, InvocationInterceptor {
     private val testContainerFactory = TestContainerFactory()
     private val testInvocationFactory = TestInvocationFactory(
         TestInvocationParser(),
-        JavaMethodParser(),
-        KotlinFunctionParser(),
+        JavaMethodParser(RealParserCache.shared),
+        KotlinFunctionParser(RealParserCache.shared),
         SequenceDiagramFactory
     )
 
@@ -34,7 +35,8 @@ class KensaExtension : Extension, BeforeAllCallback, BeforeEachCallback,
         if (Kensa.configuration.isOutputEnabled) {
             with(context.getStore(KENSA)) {
                 val executionContext = bindToRootContextOf(context)
-                val container = testContainerFactory.createFor(context, Kensa.configuration.testWriter)
+                // The writer is resolved for each container, so that it can be changed between test classes
+                val container = testContainerFactory.createFor(context, executionContext.testWriterFor(Kensa.configuration.testWriter))
                 put(TEST_CONTAINER_KEY, container)
                 executionContext.register(container)
             }
@@ -43,7 +45,7 @@ class KensaExtension : Extension, BeforeAllCallback, BeforeEachCallback,
 
     override fun beforeEach(context: ExtensionContext) {
         with(context.getStore(KENSA)) {
-            TestContext(Givens(), CapturedInteractions()).also {
+            TestContext(Givens(), CapturedInteractions(Kensa.configuration.capturePolicy)).also {
                 put(TEST_CONTEXT_KEY, it)
                 TestContextHolder.bindToThread(it)
             }
@@ -110,6 +112,10 @@ class KensaExtension : Extension, BeforeAllCallback, BeforeEachCallback,
         }
     }
 
+    override fun afterAll(context: ExtensionContext) {
+        RealParserCache.shared.releaseParseTrees(context.requiredTestClass)
+    }
+
     // Add the KensaExecutionContext to the store so we can hook up the close method to be executed when the
     // whole test run is complete
     @Synchronized
@@ -124,7 +130,9 @@ class KensaExtension : Extension, BeforeAllCallback, BeforeEachCallback,
         val KENSA: ExtensionContext.Namespace = ExtensionContext.Namespace.create("dev", "kensa")
         const val TEST_CONTEXT_KEY = "TestContext"
         private val EXECUTION_CONTEXT_FACTORY = { _: String ->
-            KensaExecutionContext(ResultWriter(Kensa.configuration.outputDir, Kensa.configuration.indexWriter))
+            with(Kensa.configuration) {
+                KensaExecutionContext(ResultWriter(outputDir, indexWriter), testWriterThreads)
+            }
         }
         private const val TEST_START_TIME_KEY = "StartTime"
         private const val TEST_CONTAINER_KEY = "TestContainer"
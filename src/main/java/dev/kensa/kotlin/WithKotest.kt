@@ -70,7 +70,9 @@ interface WithKotest {
     fun <T> thenEventually(extractor: StateExtractor<T>, match: Matcher<T>): Unit = thenEventually(10.seconds, extractor, match)
 
     fun <T> thenEventually(duration: Duration, extractor: StateExtractor<T>, match: Matcher<T>) {
-        thenEventually(ZERO, duration, 25.milliseconds, extractor, match)
+        runBlocking {
+            KotestThen.thenEventually(duration, testContext(), extractor, match)
+        }
     }
 
     fun <T> thenEventually(initialDelay: Duration = ZERO, duration: Duration = 10.seconds, interval: Duration = 25.milliseconds, extractor: StateExtractor<T>, match: Matcher<T>) {
@@ -82,7 +84,9 @@ interface WithKotest {
     fun <T> thenEventually(extractor: StateExtractor<T>, block: T.() -> Unit = {}): Unit = thenEventually(10.seconds, extractor, block)
 
     fun <T> thenEventually(duration: Duration, extractor: StateExtractor<T>, block: T.() -> Unit = {}) {
-        thenEventually(ZERO, duration, 25.milliseconds, extractor, block)
+        runBlocking {
+            KotestThen.thenEventually(duration, testContext(), extractor, block)
+        }
     }
 
     fun <T> thenEventually(initialDelay: Duration = ZERO, duration: Duration = 10.seconds, interval: Duration = 25.milliseconds, extractor: StateExtractor<T>, block: T.() -> Unit = {}) {
@@ -0,0 +1,53 @@
+package dev.kensa.output
+
+import dev.kensa.KensaException
+import dev.kensa.context.TestContainer
+import java.util.concurrent.*
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy
+import java.util.concurrent.TimeUnit.SECONDS
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Writes containers on a bounded pool of background threads, so that report generation overlaps with test execution.
+ * When the queue is full the closing test thread writes the container itself, which limits the number of completed
+ * containers waiting to be written. Each container is written by the writer it was given, so that the pool can be shared
+ * by containers whose writers differ.
+ */
+class AsyncTestWriter(threads: Int, queueCapacity: Int = threads * 4) {
+    private val threadCount = AtomicInteger()
+    private val executor = ThreadPoolExecutor(
+        threads,
+        threads,
+        30, SECONDS,
+        ArrayBlockingQueue(queueCapacity),
+        { runnable -> Thread(runnable, "kensa-test-writer-${threadCount.incrementAndGet()}").apply { isDaemon = true } },
+        CallerRunsPolicy()
+    ).apply { allowCoreThreadTimeOut(true) }
+
+    private val pendingWrites: MutableList<Future<*>> = CopyOnWriteArrayList()
+
+    fun writingTo(delegate: TestWriter): TestWriter = object : TestWriter {
+        override fun write(container: TestContainer) {
+            pendingWrites += executor.submit { delegate.write(container) }
+        }
+    }
+
+    /**
+     * Waits for every container submitted so far to be written, failing if any of them could not be.
+     */
+    fun awaitCompletion() {
+        val failures = pendingWrites.mapNotNull { write ->
+            try {
+                write.get()
+                null
+            } catch (e: ExecutionException) {
+                e.cause ?: e
+            }
+        }
+        pendingWrites.clear()
+
+        failures.firstOrNull()?.let { first ->
+            throw KensaException("Unable to write test results", first).apply { failures.drop(1).forEach(::addSuppressed) }
+        }
+    }
+}
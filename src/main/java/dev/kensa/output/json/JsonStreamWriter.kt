@@ -0,0 +1,69 @@
+package dev.kensa.output.json
+
+import com.eclipsesource.json.Json
+import com.eclipsesource.json.JsonValue
+import com.eclipsesource.json.WriterConfig
+import java.io.Writer
+
+/**
+ * Writes Json directly to a [Writer] as it is produced, so that only the current leaf value needs to be held in memory.
+ * Leaf values are written with minimal-json, so output is identical to writing the equivalent [JsonValue] tree.
+ */
+class JsonStreamWriter(private val writer: Writer) {
+    private var isFirstInContainer = true
+
+    fun writeObject(block: JsonStreamWriter.() -> Unit) {
+        writeContainer('{', '}', block)
+    }
+
+    fun writeArray(block: JsonStreamWriter.() -> Unit) {
+        writeContainer('[', ']', block)
+    }
+
+    fun member(name: String, value: JsonValue) {
+        writeName(name)
+        value.writeTo(writer, WriterConfig.MINIMAL)
+    }
+
+    fun member(name: String, value: String?) = member(name, Json.value(value))
+
+    fun objectMember(name: String, block: JsonStreamWriter.() -> Unit) {
+        writeName(name)
+        writeObject(block)
+    }
+
+    fun arrayMember(name: String, block: JsonStreamWriter.() -> Unit) {
+        writeName(name)
+        writeArray(block)
+    }
+
+    fun element(value: JsonValue) {
+        writeSeparator()
+        value.writeTo(writer, WriterConfig.MINIMAL)
+    }
+
+    fun objectElement(block: JsonStreamWriter.() -> Unit) {
+        writeSeparator()
+        writeObject(block)
+    }
+
+    private fun writeContainer(open: Char, close: Char, block: JsonStreamWriter.() -> Unit) {
+        writer.write(open.code)
+        isFirstInContainer = true
+        block()
+        writer.write(close.code)
+        // The enclosing container, if any, now has at least this element
+        isFirstInContainer = false
+    }
+
+    private fun writeName(name: String) {
+        writeSeparator()
+        Json.value(name).writeTo(writer, WriterConfig.MINIMAL)
+        writer.write(':'.code)
+    }
+
+    private fun writeSeparator() {
+        if (!isFirstInContainer) writer.write(','.code)
+        isFirstInContainer = false
+    }
+}
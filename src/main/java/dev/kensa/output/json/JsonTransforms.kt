@@ -19,46 +19,55 @@ import dev.kensa.util.NamedValue
 import java.io.IOException
 import java.io.PrintWriter
 import java.io.StringWriter
+import java.io.Writer
 import java.time.Duration
 import com.eclipsesource.json.Json.`object` as jsonObject
 
 object JsonTransforms {
 
-    fun toJsonWith(renderers: Renderers): (TestContainer) -> JsonValue = { container: TestContainer ->
-        jsonObject()
-            .add("testClass", container.testClass.name)
-            .add("displayName", container.displayName)
-            .add("state", container.state.description)
-            .add("notes", container.notes)
-            .add("issues", asJsonArray(container.issues))
-            .add("tests", asJsonArray(container.invocations.values) { invocation: TestMethodInvocation ->
-                var totalElapsed: Duration = Duration.ZERO
-
-                val invocations = asJsonArray(invocation.invocations) { i ->
-                    totalElapsed += i.elapsed
-
-                    jsonObject()
-                        .add("elapsedTime", DurationFormatter.format(i.elapsed))
-                        .add("highlights", asJsonArray(i.highlightedValues, nvValueAsJson(renderers)))
-                        .add("sentences", asJsonArray(i.sentences, sentenceAsJson()))
-                        .add("parameterizedTestDescription", i.parameterizedTestDescription)
-                        .add("parameters", asJsonArray(i.parameters, nvAsJson(renderers)))
-                        .add("givens", asJsonArray(i.givens, givensEntryAsJson(renderers)))
-                        .add("capturedInteractions", asJsonArray(i.interactions.filter { it.key != sdMarkerKey }, interactionEntryAsJson(renderers)))
-                        .add("sequenceDiagram", if (i.sequenceDiagram == null) null else i.sequenceDiagram.toString())
-                        .add("state", i.state.description)
-                        .add("executionException", executionExceptionFrom(i))
+    // Only entries put directly, rather than captured between parties, can be hidden by their key
+    private val hiddenInteractionKeyPattern = "^\\{.+}.*$".toRegex()
+
+    // Streams the container directly to the writer, so that a container's invocations are never all held as Json at once
+    fun writeJsonWith(renderers: Renderers): (TestContainer, Writer) -> Unit = { container: TestContainer, writer: Writer ->
+        JsonStreamWriter(writer).writeObject {
+            member("testClass", container.testClass.name)
+            member("displayName", container.displayName)
+            member("state", container.state.description)
+            member("notes", container.notes)
+            member("issues", asJsonArray(container.issues))
+            arrayMember("tests") {
+                container.invocations.values.forEach { invocation: TestMethodInvocation ->
+                    objectElement {
+                        member("elapsedTime", DurationFormatter.format(invocation.invocations.fold(Duration.ZERO) { total, i -> total + i.elapsed }))
+                        member("testMethod", invocation.method.name)
+                        member("displayName", invocation.displayName)
+                        member("notes", invocation.notes)
+                        member("issues", asJsonArray(invocation.issues))
+                        member("state", invocation.state.description)
+                        arrayMember("invocations") {
+                            invocation.invocations.forEach { i ->
+                                objectElement {
+                                    member("elapsedTime", DurationFormatter.format(i.elapsed))
+                                    member("highlights", asJsonArray(i.highlightedValues, nvValueAsJson(renderers)))
+                                    member("sentences", asJsonArray(i.sentences, sentenceAsJson()))
+                                    member("parameterizedTestDescription", i.parameterizedTestDescription)
+                                    member("parameters", asJsonArray(i.parameters, nvAsJson(renderers)))
+                                    member("givens", asJsonArray(i.givens, givensEntryAsJson(renderers, i.highlightedValues)))
+                                    arrayMember("capturedInteractions") {
+                                        i.interactions.filter { it.key != sdMarkerKey }
+                                            .forEach { entry -> interactionEntryAsJson(renderers)(entry)?.let { element(it) } }
+                                    }
+                                    member("sequenceDiagram", i.sequenceDiagram?.toString())
+                                    member("state", i.state.description)
+                                    member("executionException", executionExceptionFrom(i))
+                                }
+                            }
+                        }
+                    }
                 }
-
-                jsonObject()
-                    .add("elapsedTime", DurationFormatter.format(totalElapsed))
-                    .add("testMethod", invocation.method.name)
-                    .add("displayName", invocation.displayName)
-                    .add("notes", invocation.notes)
-                    .add("issues", asJsonArray(invocation.issues))
-                    .add("state", invocation.state.description)
-                    .add("invocations", invocations)
-            })
+            }
+        }
     }
 
     // Overload rangeTo to allow chaining of function calls
@@ -120,11 +129,14 @@ object JsonTransforms {
             .forEach { add(it) }
     }
 
-    private fun givensEntryAsJson(renderers: Renderers): (KensaMap.Entry) -> JsonValue = { entry: KensaMap.Entry -> jsonObject().add(entry.key, renderers.renderValue(entry.value)) }
+    // Highlighted values are put into the givens already rendered, and are not rendered again
+    private fun givensEntryAsJson(renderers: Renderers, highlightedValues: Collection<NamedValue>): (KensaMap.Entry) -> JsonValue = { entry: KensaMap.Entry ->
+        jsonObject().add(entry.key, NamedValue(entry.key, entry.value).let { if (it in highlightedValues) it.renderedValue(renderers) else renderers.renderValue(entry.value) })
+    }
 
     private fun interactionEntryAsJson(renderers: Renderers): (KensaMap.Entry) -> JsonValue? = { entry ->
         entry.takeUnless {
-            it.key.matches("^\\{.+}.*$".toRegex())
+            it.interaction == null && hiddenInteractionKeyPattern.matches(it.key)
         }?.let {
             jsonObject()
                 .add("id", it.key.hashCode().toString())
@@ -158,10 +170,13 @@ object JsonTransforms {
             )
         }
 
-    private fun nvValueAsJson(renderers: Renderers) = { nv: NamedValue -> Json.value(renderers.renderValue(nv.value)) }
+    // Parameter and highlighted values are rendered when the invocation is parsed
+    private fun NamedValue.renderedValue(renderers: Renderers) = value as? String ?: renderers.renderValue(value)
+
+    private fun nvValueAsJson(renderers: Renderers) = { nv: NamedValue -> Json.value(nv.renderedValue(renderers)) }
 
     private fun NamedValue.asJson(renderers: Renderers) = jsonObject().add(name, renderers.renderValue(value))
-    private fun nvAsJson(renderers: Renderers) = { nv: NamedValue -> jsonObject().add(nv.name, renderers.renderValue(nv.value)) }
+    private fun nvAsJson(renderers: Renderers) = { nv: NamedValue -> jsonObject().add(nv.name, nv.renderedValue(renderers)) }
 
     private fun entryAsJson(renderers: Renderers) = { e: Map.Entry<String, *> -> jsonObject().add(e.key, renderers.renderValue(e.value)) }
 
@@ -7,21 +7,24 @@ import dev.kensa.context.TestContainer
 import dev.kensa.output.json.JsonTransforms.rangeTo
 import dev.kensa.output.json.JsonTransforms.toIndexJson
 import dev.kensa.output.json.JsonTransforms.toJsonString
-import dev.kensa.output.json.JsonTransforms.toJsonWith
+import dev.kensa.output.json.JsonTransforms.writeJsonWith
 import dev.kensa.render.Renderers
 import dev.kensa.sentence.Acronym
 import io.pebbletemplates.pebble.PebbleEngine
 import io.pebbletemplates.pebble.loader.ClasspathLoader
 import io.pebbletemplates.pebble.template.PebbleTemplate
 import java.io.IOException
+import java.io.Writer
 import java.net.URL
 import java.nio.charset.StandardCharsets.UTF_8
 import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.StandardOpenOption.CREATE
+import java.util.*
 import com.eclipsesource.json.Json.`object` as jsonObject
 
 class JsonScript(@Suppress("unused", "for pebble template") val id: String, @Suppress("unused", "for pebble template") val content: String)
+class StreamedJsonScript(val id: String, val writeContent: (Writer) -> Unit)
 class Index(@Suppress("unused", "for pebble template") val content: String)
 
 class Template(private val outputPath: Path, mode: Mode, issueTrackerUrl: URL, sectionOrder: List<Section>, acronyms: Set<Acronym>) {
@@ -32,6 +35,7 @@ class Template(private val outputPath: Path, mode: Mode, issueTrackerUrl: URL, s
     private val indices: MutableList<Index> = ArrayList()
     private val template: PebbleTemplate = pebbleEngine.getTemplate("pebble-index.html")
     private val scripts: MutableList<JsonScript> = ArrayList()
+    private val streamedScripts: MutableMap<String, StreamedJsonScript> = LinkedHashMap()
     private var indexCounter = 1
 
     fun addIndex(container: TestContainer, factory: (TestContainer, Int) -> Index) {
@@ -42,6 +46,15 @@ class Template(private val outputPath: Path, mode: Mode, issueTrackerUrl: URL, s
         scripts += factory(container, indexCounter)
     }
 
+    // The template only sees a placeholder for a streamed script, which is replaced by its content as it is written
+    fun addStreamedJsonScript(container: TestContainer, factory: (TestContainer, Int) -> StreamedJsonScript) {
+        factory(container, indexCounter).let { script ->
+            val placeholder = "$streamedScriptPlaceholderPrefix${streamedScripts.size}"
+            streamedScripts[placeholder] = script
+            scripts += JsonScript(script.id, placeholder)
+        }
+    }
+
     fun write() {
         HashMap<String, Any>().apply {
             this["scripts"] = scripts
@@ -50,16 +63,38 @@ class Template(private val outputPath: Path, mode: Mode, issueTrackerUrl: URL, s
         }
         scripts.clear()
         indices.clear()
+        streamedScripts.clear()
     }
 
     private fun write(context: Map<String, Any>) {
         try {
-            template.evaluate(Files.newBufferedWriter(outputPath, UTF_8, CREATE), context)
+            Files.newBufferedWriter(outputPath, UTF_8, CREATE).use { writer ->
+                StreamedScriptWriter(writer, streamedScripts).also { template.evaluate(it, context) }.run {
+                    if (unwritten.isNotEmpty()) throw KensaException("Template did not write scripts [${unwritten.joinToString { it.id }}]")
+                }
+            }
         } catch (e: IOException) {
             throw KensaException("Unable to write template", e)
         }
     }
 
+    // Pebble writes each printed value with a single write(String), so placeholders can be matched exactly
+    private class StreamedScriptWriter(private val out: Writer, scripts: Map<String, StreamedJsonScript>) : Writer() {
+        private val pending = LinkedHashMap(scripts)
+        val unwritten: Collection<StreamedJsonScript>
+            get() = pending.values
+
+        override fun write(str: String) {
+            pending.remove(str)?.writeContent?.invoke(out) ?: out.write(str)
+        }
+
+        override fun write(cbuf: CharArray, off: Int, len: Int) = out.write(cbuf, off, len)
+
+        override fun flush() = out.flush()
+
+        override fun close() = out.close()
+    }
+
     private fun configurationJson(mode: Mode, issueTrackerUrl: URL, sectionOrder: List<Section>, acronyms: Set<Acronym>): JsonScript {
         return JsonScript(
             "config",
@@ -82,6 +117,7 @@ class Template(private val outputPath: Path, mode: Mode, issueTrackerUrl: URL, s
     }
 
     companion object {
+        private val streamedScriptPlaceholderPrefix = "kensa-streamed-script-${UUID.randomUUID()}-"
         private val pebbleEngine = PebbleEngine.Builder().autoEscaping(false).loader(ClasspathLoader()).build()
 
         fun asIndex(): (TestContainer, Int) -> Index {
@@ -93,11 +129,9 @@ class Template(private val outputPath: Path, mode: Mode, issueTrackerUrl: URL, s
         }
 
 
-        fun asJsonScript(renderers: Renderers): (TestContainer, Int) -> JsonScript {
+        fun asStreamedJsonScript(renderers: Renderers): (TestContainer, Int) -> StreamedJsonScript {
             return { container, index ->
-                fun toScript() = { content: String -> JsonScript("test-result-$index", content) }
-
-                container.transform(toJsonWith(renderers)..toJsonString()..toScript())
+                StreamedJsonScript("test-result-$index") { writer -> writeJsonWith(renderers)(container, writer) }
             }
         }
     }
@@ -50,7 +50,7 @@ interface TestWriter {
 class DefaultTestWriter(private val configuration: Configuration) : TestWriter {
     override fun write(container: TestContainer) {
         Template(Kensa.configuration.outputDir.resolve("${container.testClass.name}.html"), TestFile, configuration.issueTrackerUrl, configuration.sectionOrder, configuration.dictionary.acronyms).apply {
-            addJsonScript(container, Template.asJsonScript(Kensa.configuration.renderers))
+            addStreamedJsonScript(container, Template.asStreamedJsonScript(Kensa.configuration.renderers))
             write()
         }
     }
@@ -4,28 +4,38 @@ import dev.kensa.KensaException
 import org.antlr.v4.runtime.ParserRuleContext
 import org.antlr.v4.runtime.tree.ParseTree
 import org.antlr.v4.runtime.tree.TerminalNode
+import org.antlr.v4.runtime.tree.TerminalNodeImpl
 
-sealed class Event<PT : ParseTree>(val parseTree: PT) {
+sealed class Event<PT : ParseTree>(parseTree: PT) {
 
+    var parseTree: PT = parseTree
+        private set
+
+    private var _location: Location? = null
     val location: Location
-        get() = Location(lineNumber, linePosition)
+        get() = _location ?: Location(lineNumber, linePosition).also { _location = it }
 
     private val lineNumber: Int
-        get() = when (parseTree) {
-            is ParserRuleContext -> parseTree.start.line
-            is TerminalNode -> parseTree.symbol.line
+        get() = when (val tree = parseTree) {
+            is ParserRuleContext -> tree.start.line
+            is TerminalNode -> tree.symbol.line
 
-            else -> throw KensaException("Could not get line number from parse tree of type [${parseTree.javaClass}")
+            else -> throw KensaException("Could not get line number from parse tree of type [${tree.javaClass}")
         }
 
     private val linePosition: Int
-        get() = when (parseTree) {
-            is ParserRuleContext -> parseTree.start.charPositionInLine
-            is TerminalNode -> parseTree.symbol.charPositionInLine
+        get() = when (val tree = parseTree) {
+            is ParserRuleContext -> tree.start.charPositionInLine
+            is TerminalNode -> tree.symbol.charPositionInLine
 
-            else -> throw KensaException("Could not get line position from parse tree of type [${parseTree.javaClass}")
+            else -> throw KensaException("Could not get line position from parse tree of type [${tree.javaClass}")
         }
 
+    internal open fun reset(parseTree: PT) {
+        this.parseTree = parseTree
+        _location = null
+    }
+
     class EnterTestMethodEvent(parseTree: ParseTree) : Event<ParseTree>(parseTree)
     class ExitTestMethodEvent(parseTree: ParseTree) : Event<ParseTree>(parseTree)
     class TerminalNodeEvent(parseTree: TerminalNode) : Event<TerminalNode>(parseTree)
@@ -37,9 +47,25 @@ sealed class Event<PT : ParseTree>(val parseTree: PT) {
     class EnterExpressionEvent(parseTree: ParseTree) : Event<ParseTree>(parseTree)
     class ExitExpressionEvent(parseTree: ParseTree) : Event<ParseTree>(parseTree)
 
-    class OperatorEvent(parseTree: ParseTree, val value: String) : Event<ParseTree>(parseTree)
+    class OperatorEvent(parseTree: ParseTree, value: String) : Event<ParseTree>(parseTree) {
+        var value: String = value
+            private set
+
+        internal fun reset(parseTree: ParseTree, value: String) {
+            reset(parseTree)
+            this.value = value
+        }
+    }
+
+    sealed class LiteralEvent(parseTree: ParseTree, value: String) : Event<ParseTree>(parseTree) {
+        var value: String = value
+            private set
+
+        internal fun reset(parseTree: ParseTree, value: String) {
+            reset(parseTree)
+            this.value = value
+        }
 
-    sealed class LiteralEvent(parseTree: ParseTree, val value: String) : Event<ParseTree>(parseTree) {
         class BooleanLiteralEvent(parseTree: ParseTree, value: String) : LiteralEvent(parseTree, value)
         class CharacterLiteralEvent(parseTree: ParseTree, value: String) : LiteralEvent(parseTree, value)
         class StringLiteralEvent(parseTree: ParseTree, value: String) : LiteralEvent(parseTree, value)
@@ -48,4 +74,42 @@ sealed class Event<PT : ParseTree>(val parseTree: PT) {
     }
 
     data class Location(val lineNumber: Int, val linePosition: Int)
-}
\ No newline at end of file
+}
+
+/**
+ * A single instance of each event, re-pointed at every parse tree node as it is visited, so that walking a method body
+ * does not allocate an event per node. Events must therefore not be retained beyond the transition they are sent in.
+ */
+internal class ReusableEvents {
+    private val unset = TerminalNodeImpl(null)
+
+    private val enterTestMethod = Event.EnterTestMethodEvent(unset)
+    private val exitTestMethod = Event.ExitTestMethodEvent(unset)
+    private val terminalNode = Event.TerminalNodeEvent(unset)
+    private val enterMethodInvocation = Event.EnterMethodInvocationEvent(unset)
+    private val exitMethodInvocation = Event.ExitMethodInvocationEvent(unset)
+    private val identifier = Event.IdentifierEvent(unset)
+    private val enterStatement = Event.EnterStatementEvent(unset)
+    private val exitStatement = Event.ExitStatementEvent(unset)
+    private val operator = Event.OperatorEvent(unset, "")
+    private val booleanLiteral = Event.LiteralEvent.BooleanLiteralEvent(unset, "")
+    private val characterLiteral = Event.LiteralEvent.CharacterLiteralEvent(unset, "")
+    private val stringLiteral = Event.LiteralEvent.StringLiteralEvent(unset, "")
+    private val nullLiteral = Event.LiteralEvent.NullLiteralEvent(unset, "")
+    private val numberLiteral = Event.LiteralEvent.NumberLiteralEvent(unset, "")
+
+    fun enterTestMethod(parseTree: ParseTree) = enterTestMethod.apply { reset(parseTree) }
+    fun exitTestMethod(parseTree: ParseTree) = exitTestMethod.apply { reset(parseTree) }
+    fun terminalNode(parseTree: TerminalNode) = terminalNode.apply { reset(parseTree) }
+    fun enterMethodInvocation(parseTree: ParseTree) = enterMethodInvocation.apply { reset(parseTree) }
+    fun exitMethodInvocation(parseTree: ParseTree) = exitMethodInvocation.apply { reset(parseTree) }
+    fun identifier(parseTree: ParseTree) = identifier.apply { reset(parseTree) }
+    fun enterStatement(parseTree: ParseTree) = enterStatement.apply { reset(parseTree) }
+    fun exitStatement(parseTree: ParseTree) = exitStatement.apply { reset(parseTree) }
+    fun operator(parseTree: ParseTree, value: String) = operator.apply { reset(parseTree, value) }
+    fun booleanLiteral(parseTree: ParseTree, value: String) = booleanLiteral.apply { reset(parseTree, value) }
+    fun characterLiteral(parseTree: ParseTree, value: String) = characterLiteral.apply { reset(parseTree, value) }
+    fun stringLiteral(parseTree: ParseTree, value: String) = stringLiteral.apply { reset(parseTree, value) }
+    fun nullLiteral(parseTree: ParseTree, value: String) = nullLiteral.apply { reset(parseTree, value) }
+    fun numberLiteral(parseTree: ParseTree, value: String) = numberLiteral.apply { reset(parseTree, value) }
+}
@@ -0,0 +1,57 @@
+package dev.kensa.parse
+
+import dev.kensa.parse.Accessor.ValueAccessor
+import dev.kensa.parse.Accessor.ValueAccessor.MethodAccessor
+import dev.kensa.parse.Accessor.ValueAccessor.ParameterAccessor
+import dev.kensa.render.Renderers
+import dev.kensa.util.NamedValue
+
+/**
+ * The values of a single test invocation. Each value is evaluated the first time it is asked for and rendered the first
+ * time its rendering is asked for, so a value that appears in several sentences, or is also highlighted, costs no more
+ * than one that appears once. Used by one thread only.
+ */
+class InvocationValues(
+    private val testInstance: Any,
+    private val arguments: Array<Any?>,
+    private val renderers: Renderers,
+    scenarioAccessors: Map<String, ValueAccessor>
+) {
+    private val values: MutableMap<ValueAccessor, Value> = HashMap()
+    private val scenarioAccessor = CachingScenarioMethodAccessor(testInstance, scenarioAccessors)
+    private val renderedScenarioValues: MutableMap<String, String> = HashMap()
+    private val renderedHighlights: MutableSet<String> = HashSet()
+
+    fun rawValueOf(accessor: ValueAccessor): Any? = valueOf(accessor).raw
+
+    fun renderedValueOf(accessor: ValueAccessor): String = valueOf(accessor).rendered
+
+    // A highlighted method that throws is logged and rendered as null, as it always has been, whereas a sentence token
+    // reports the exception
+    fun renderedHighlightValueOf(accessor: ValueAccessor): String = (accessAndLogError { valueOf(accessor) } ?: Value(null)).rendered
+
+    fun renderedScenarioValueOf(scenarioName: String, methodName: String): String =
+        renderedScenarioValues.getOrPut("$scenarioName.$methodName") { renderers.renderValue(scenarioAccessor.valueOf(scenarioName, methodName)) }
+
+    fun highlight(values: Collection<NamedValue>) {
+        values.forEach { renderedHighlights.add(it.value.toString()) }
+    }
+
+    fun isHighlighted(renderedValue: String): Boolean = renderedValue in renderedHighlights
+
+    // Method values are read directly so that exceptions are reported, as they always have been for sentence tokens
+    private fun valueOf(accessor: ValueAccessor): Value =
+        values.getOrPut(accessor) {
+            Value(
+                when (accessor) {
+                    is ParameterAccessor -> accessor.valueOfIn(arguments)
+                    is MethodAccessor -> accessor.invokeOn(testInstance)
+                    else -> accessor.valueOfIn(testInstance)
+                }
+            )
+        }
+
+    private inner class Value(val raw: Any?) {
+        val rendered: String by lazy(LazyThreadSafetyMode.NONE) { renderers.renderValue(raw) }
+    }
+}
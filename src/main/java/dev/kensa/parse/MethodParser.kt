@@ -1,93 +1,148 @@
 package dev.kensa.parse
 
 import dev.kensa.Emphasise
+import dev.kensa.Highlight
 import dev.kensa.Kensa
 import dev.kensa.KensaException
+import dev.kensa.ParameterizedTestDescription
+import dev.kensa.SentenceValue
 import dev.kensa.parse.Accessor.ValueAccessor.ParameterAccessor
 import dev.kensa.parse.Accessor.ValueAccessor
 import dev.kensa.parse.Accessor.ValueAccessor.*
 import dev.kensa.util.*
 import java.lang.reflect.Method
 import java.lang.reflect.Parameter
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.reflect.KClass
 
-val greedyGenericPattern = "<.*>".toRegex()
-
 interface MethodParser : ParserCache, ParserDelegate {
+    // Caches may be shared across threads, so each class and method is prepared once, by whichever thread gets there first
     fun parse(method: Method): ParsedMethod =
-        parsedMethodCache.getOrPut(method) {
-            val testClass = method.declaringClass
-            val actualDeclaringClass = method.actualDeclaringClass
-
-            val classToParse = testClass.takeIf { it == actualDeclaringClass } ?: actualDeclaringClass
-            val properties = propertyCache.getOrPut(testClass) { preparePropertiesFor(testClass) }
-            val (testMethodDeclarations, nestedSentenceDeclarations, emphasisedMethodDeclarations) =
-                declarationCache.getOrPut(classToParse) { findMethodDeclarationsIn(classToParse) }
-
-            val testMethodDeclaration = testMethodDeclarations.find(matchingDeclarationFor(method))
-                ?: throw KensaException("Did not find method declaration for test method [${method.name}]")
-
-            val testMethodParameters = parameterCache.getOrPut(method) {
-                prepareParametersFor(
-                    method,
-                    testMethodDeclaration.parameterNamesAndTypes
-                )
-            }
+        parsedMethodCache.computeIfAbsent(method) { lazy { prepareParsedMethod(method) } }.value
 
-            val emphasisedMethods: Map<String, EmphasisDescriptor> = emphasisedMethodCache.getOrPut(testClass) {
-                prepareEmphasisedMethods(testClass, emphasisedMethodDeclarations)
-            }
+    private fun prepareParsedMethod(method: Method): ParsedMethod {
+        val testClass = method.declaringClass
+        val actualDeclaringClass = method.actualDeclaringClass
 
-            val methods: Map<String, MethodAccessor> = methodCache.getOrPut(testClass) {
-                prepareMethodsFor(testClass)
-            }
+        val classToParse = testClass.takeIf { it == actualDeclaringClass } ?: actualDeclaringClass
+        val properties = propertyCache.computeIfAbsent(testClass) { preparePropertiesFor(testClass) }
+        val methods: Map<String, MethodAccessor> = methodCache.computeIfAbsent(testClass) {
+            prepareMethodsFor(testClass)
+        }
 
-            nestedSentenceCache[testClass] = nestedSentenceDeclarations
-                .map {
-                    Pair(
-                        it.name,
-                        ParserStateMachine(
-                            Kensa.configuration.dictionary,
-                            properties,
-                            methods,
-                            testMethodParameters.descriptors
-                        ).run {
-                            parse(this, it)
-                            sentences
-                        }
-                    )
-                }.associateBy({ it.first }, { it.second })
-
-            val testMethodSentences = ParserStateMachine(
-                Kensa.configuration.dictionary,
-                properties,
-                methods,
-                testMethodParameters.descriptors,
-                nestedSentenceCache[testClass] ?: emptyMap(),
-                emphasisedMethods
-            ).run {
-                parse(this, testMethodDeclaration)
-                sentences
+        val persistentCache = Kensa.configuration.parseCacheDir?.let { PersistentParseCache(it) }
+        val persistentKey = persistentCache?.let { persistentKeyFor(method, classToParse, properties, methods) }
+
+        val (parameterNames, testMethodSentences, nestedSentences) = persistentKey?.let { persistentCache.load(it) }
+            ?: parseSentences(method, classToParse, properties, methods).also { parsed ->
+                persistentKey?.let { persistentCache.store(it, parsed) }
             }
+        parsedClassCache[testClass]?.get(classToParse)?.value?.testMethodParsed(signatureOf(method))
+
+        val testMethodParameters = parameterCache.computeIfAbsent(method) { prepareParametersFor(method, parameterNames) }
+
+        return ParsedMethod(
+            method.normalisedName,
+            testMethodParameters,
+            testMethodSentences,
+            nestedSentences,
+            properties,
+            methods
+        )
+    }
 
-            ParsedMethod(
-                method.normalisedName,
-                parameterCache[method]!!,
-                testMethodSentences,
-                nestedSentenceCache[testClass]!!,
-                properties,
-                methods
-            )
+    private fun parseSentences(
+        method: Method,
+        classToParse: Class<*>,
+        properties: Map<String, PropertyAccessor>,
+        methods: Map<String, MethodAccessor>
+    ): ParsedSentences {
+        val parsedClass = parsedClassCache.computeIfAbsent(method.declaringClass) { ConcurrentHashMap() }.computeIfAbsent(classToParse) {
+            lazy { prepareParsedClass(method.declaringClass, classToParse, properties, methods) }
+        }.value
+        val signature = signatureOf(method)
+
+        val testMethodDeclaration = parsedClass.testMethodDeclarationFor(signature)
+            ?: throw KensaException("Did not find method declaration for test method [${method.name}]")
+
+        val parameterNames = testMethodDeclaration.parameterNamesAndTypes.map { it.first }
+        val testMethodParameters = parameterCache.computeIfAbsent(method) { prepareParametersFor(method, parameterNames) }
+
+        val nestedSentences = parsedClass.nestedSentencesFor(testMethodParameters.descriptors)
+
+        val testMethodSentences = ParserStateMachine(
+            Kensa.configuration.dictionary,
+            properties,
+            methods,
+            testMethodParameters.descriptors,
+            nestedSentences,
+            parsedClass.emphasisedMethods
+        ).run {
+            parse(this, testMethodDeclaration)
+            sentences
         }
 
-    fun matchingDeclarationFor(method: Method) = { dc: MethodDeclarationContext ->
-        method.normalisedName == dc.name &&
-            // Only match on parameter simple type name - saves having to go looking in the imports
-            dc.parameterNamesAndTypes.map {
-                it.second.substringAfterLast('.').replace(greedyGenericPattern, "")
-            } == method.parameterTypes.map(toSimpleTypeName)
+        return ParsedSentences(parameterNames, testMethodSentences, nestedSentences)
     }
 
+    private fun prepareParsedClass(
+        testClass: Class<*>,
+        classToParse: Class<*>,
+        properties: Map<String, PropertyAccessor>,
+        methods: Map<String, MethodAccessor>
+    ): ParsedClass {
+        val declarations = findMethodDeclarationsIn(classToParse)
+
+        return ParsedClass(
+            declarations,
+            prepareEmphasisedMethods(testClass, declarations.third),
+            { findMethodDeclarationsIn(classToParse) }
+        ) { nestedSentenceDeclarations, parameters ->
+            nestedSentenceDeclarations.associateBy({ it.name }) { declaration ->
+                ParserStateMachine(
+                    Kensa.configuration.dictionary,
+                    properties,
+                    methods,
+                    parameters
+                ).run {
+                    parse(this, declaration)
+                    sentences
+                }
+            }
+        }
+    }
+
+    // Everything other than the source itself that can change the sentences produced for a method
+    private fun persistentKeyFor(
+        method: Method,
+        classToParse: Class<*>,
+        properties: Map<String, PropertyAccessor>,
+        methods: Map<String, MethodAccessor>
+    ): String =
+        PersistentParseCache.keyFor(
+            sourceDigestCache.computeIfAbsent(SourceCodeIndex.locate(classToParse), PersistentParseCache::digestOf),
+            Kensa.configuration.dictionary.fingerprint,
+            Kensa.configuration.tabSize.toString(),
+            classToParse.name,
+            method.declaringClass.name,
+            "${method.name}(${method.parameterTypes.joinToString { it.name }})",
+            method.parameters.joinToString { it.isSentenceValue.toString() + it.isHighlight + it.isParameterizedTestDescription },
+            properties.values.map { it.fingerprint }.sorted().joinToString(),
+            methods.values.map { it.fingerprint }.sorted().joinToString(),
+            method.declaringClass.allMethods
+                .mapNotNull { m -> m.findAnnotation<Emphasise>()?.let { "${m.name}:${it.textStyles.toList()}:${it.textColour}:${it.backgroundColor}" } }
+                .sorted()
+                .joinToString()
+        )
+
+    private val Parameter.isSentenceValue get() = hasAnnotation<SentenceValue>()
+    private val Parameter.isHighlight get() = hasAnnotation<Highlight>()
+    private val Parameter.isParameterizedTestDescription get() = hasAnnotation<ParameterizedTestDescription>()
+    private val ValueAccessor.fingerprint get() = "$name:$isSentenceValue:$isHighlight:$isScenario:$isScenarioHolder"
+
+    // Only match on parameter simple type name - saves having to go looking in the imports
+    fun signatureOf(method: Method) = ParsedClass.Signature(method.normalisedName, method.parameterTypes.map(toSimpleTypeName))
+
     val toSimpleTypeName: (Class<*>) -> String
 
     private fun prepareEmphasisedMethods(
@@ -105,13 +160,13 @@ interface MethodParser : ParserCache, ParserDelegate {
 
     private fun prepareParametersFor(
         method: Method,
-        parameterNamesAndTypes: List<Pair<String, String>>
+        parameterNames: List<String>
     ): MethodParameters =
         MethodParameters(
             method.parameters.mapIndexed { index, parameter ->
                 ParameterAccessor(
                     parameter,
-                    parameterNamesAndTypes[index].first,
+                    parameterNames[index],
                     index,
                 )
             }.associateByTo(LinkedHashMap(), ParameterAccessor::name)
@@ -0,0 +1,76 @@
+package dev.kensa.parse
+
+import dev.kensa.parse.Accessor.ValueAccessor.ParameterAccessor
+import dev.kensa.sentence.Sentence
+import java.util.concurrent.ConcurrentHashMap
+
+typealias MethodDeclarations = Triple<List<MethodDeclarationContext>, List<MethodDeclarationContext>, List<MethodDeclarationContext>>
+
+/**
+ * The parts of a parsed test class that are shared by all of its test methods, prepared once for the class rather
+ * than once per test method.
+ *
+ * The method declarations hold on to the parse tree, and with it the token stream, of the whole source file. They are
+ * only kept until every test method in the class has been parsed, or until [releaseParseTrees] is called, after which
+ * only plain descriptors remain. Should a declaration be needed after that, the source is parsed again, once, and kept
+ * until [releaseParseTrees] is called again.
+ */
+class ParsedClass(
+    declarations: MethodDeclarations,
+    val emphasisedMethods: Map<String, EmphasisDescriptor>,
+    private val reloadDeclarations: () -> MethodDeclarations,
+    private val parseNestedSentences: (List<MethodDeclarationContext>, Map<String, ParameterAccessor>) -> Map<String, List<Sentence>>
+) {
+    private val unparsedTestMethods: MutableSet<Signature> = ConcurrentHashMap.newKeySet()
+
+    @Volatile
+    private var source: Source? = Source(declarations).also { unparsedTestMethods += it.testMethodDeclarations.keys }
+
+    private val nestedSentences: MutableMap<Set<String>, Map<String, List<Sentence>>> = ConcurrentHashMap()
+
+    fun testMethodDeclarationFor(signature: Signature): MethodDeclarationContext? = currentSource().testMethodDeclarations[signature]
+
+    // Nested sentences can only be affected by the test method parameters that are sentence values or highlighted, and
+    // most test methods have none of those, so in practice they are parsed once for the class
+    fun nestedSentencesFor(parameters: Map<String, ParameterAccessor>): Map<String, List<Sentence>> =
+        parameters.filterValues { it.isSentenceValue || it.isHighlight }.let { visibleParameters ->
+            nestedSentences.computeIfAbsent(visibleParameters.keys) { parseNestedSentences(currentSource().nestedSentenceDeclarations, visibleParameters) }
+        }
+
+    fun testMethodParsed(signature: Signature) {
+        if (unparsedTestMethods.remove(signature) && unparsedTestMethods.isEmpty()) {
+            releaseParseTrees()
+        }
+    }
+
+    fun releaseParseTrees() {
+        synchronized(this) { source = null }
+    }
+
+    private fun currentSource(): Source =
+        source ?: synchronized(this) {
+            source ?: Source(reloadDeclarations()).also { source = it }
+        }
+
+    private class Source(declarations: MethodDeclarations) {
+        // The first declaration wins where signatures clash, as it did when the declarations were searched in order
+        val testMethodDeclarations: Map<Signature, MethodDeclarationContext> =
+            HashMap<Signature, MethodDeclarationContext>().apply {
+                declarations.first.forEach { putIfAbsent(Signature.of(it), it) }
+            }
+        val nestedSentenceDeclarations: List<MethodDeclarationContext> = declarations.second
+    }
+
+    /**
+     * Identifies a method by name and simple parameter type names, which is as much as can be matched between a
+     * declaration and a reflected method without resolving imports.
+     */
+    data class Signature(val name: String, val simpleParameterTypes: List<String>) {
+        companion object {
+            private val greedyGenericPattern = "<.*>".toRegex()
+
+            fun of(declaration: MethodDeclarationContext) =
+                Signature(declaration.name, declaration.parameterNamesAndTypes.map { it.second.substringAfterLast('.').replace(greedyGenericPattern, "") })
+        }
+    }
+}
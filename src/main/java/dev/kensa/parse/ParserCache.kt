@@ -4,26 +4,47 @@ import dev.kensa.parse.Accessor.ValueAccessor.MethodAccessor
 import dev.kensa.parse.Accessor.ValueAccessor.PropertyAccessor
 import dev.kensa.sentence.Sentence
 import java.lang.reflect.Method
+import java.nio.file.Path
 import java.util.concurrent.ConcurrentHashMap
 
 interface ParserCache {
-    val parsedMethodCache: MutableMap<Method, ParsedMethod>
-    val declarationCache: MutableMap<Class<*>, Triple<List<MethodDeclarationContext>, List<MethodDeclarationContext>, List<MethodDeclarationContext>>>
+    // Values are computed lazily, once the map is no longer locked, so that parsing one class never holds up threads
+    // using other keys
+    val parsedMethodCache: MutableMap<Method, Lazy<ParsedMethod>>
     val propertyCache: MutableMap<Class<*>, Map<String, PropertyAccessor>>
     val parameterCache: MutableMap<Method, MethodParameters>
     val testMethodSentenceCache: MutableMap<Method, List<Sentence>>
-    val nestedSentenceCache: MutableMap<Class<*>, Map<String, List<Sentence>>>
-    val emphasisedMethodCache: MutableMap<Class<*>, Map<String, EmphasisDescriptor>>
+    // Keyed by the class declaring the test methods, then by the class parsed for them
+    val parsedClassCache: MutableMap<Class<*>, MutableMap<Class<*>, Lazy<ParsedClass>>>
     val methodCache: MutableMap<Class<*>, Map<String, MethodAccessor>>
+    val sourceDigestCache: MutableMap<Path, String>
+
+    // Called once all tests in a class have run, for any test methods that were never parsed, e.g. disabled ones. Methods
+    // inherited from a base class or interface are cached under that type, so only the test class and its supertypes are
+    // looked up, however many classes have been parsed.
+    fun releaseParseTrees(testClass: Class<*>) {
+        generateSequence(listOf<Class<*>>(testClass)) { types -> types.flatMap { listOfNotNull(it.superclass) + it.interfaces }.ifEmpty { null } }
+            .flatten()
+            .distinct()
+            .forEach { type ->
+                parsedClassCache[type]?.values?.forEach { parsedClass ->
+                    if (parsedClass.isInitialized()) parsedClass.value.releaseParseTrees()
+                }
+            }
+    }
 }
 
 class RealParserCache : ParserCache {
-    override val parsedMethodCache: MutableMap<Method, ParsedMethod> = ConcurrentHashMap()
-    override val declarationCache: MutableMap<Class<*>, Triple<List<MethodDeclarationContext>, List<MethodDeclarationContext>, List<MethodDeclarationContext>>> = HashMap()
-    override val propertyCache: MutableMap<Class<*>, Map<String, PropertyAccessor>> = HashMap()
-    override val parameterCache: MutableMap<Method, MethodParameters> = HashMap()
-    override val testMethodSentenceCache: MutableMap<Method, List<Sentence>> = HashMap()
-    override val nestedSentenceCache: MutableMap<Class<*>, Map<String, List<Sentence>>> = HashMap()
-    override val emphasisedMethodCache: MutableMap<Class<*>, Map<String, EmphasisDescriptor>> = HashMap()
-    override val methodCache: MutableMap<Class<*>, Map<String, MethodAccessor>> = HashMap()
-}
\ No newline at end of file
+    override val parsedMethodCache: MutableMap<Method, Lazy<ParsedMethod>> = ConcurrentHashMap()
+    override val propertyCache: MutableMap<Class<*>, Map<String, PropertyAccessor>> = ConcurrentHashMap()
+    override val parameterCache: MutableMap<Method, MethodParameters> = ConcurrentHashMap()
+    override val testMethodSentenceCache: MutableMap<Method, List<Sentence>> = ConcurrentHashMap()
+    override val parsedClassCache: MutableMap<Class<*>, MutableMap<Class<*>, Lazy<ParsedClass>>> = ConcurrentHashMap()
+    override val methodCache: MutableMap<Class<*>, Map<String, MethodAccessor>> = ConcurrentHashMap()
+    override val sourceDigestCache: MutableMap<Path, String> = ConcurrentHashMap()
+
+    companion object {
+        // Shared by every KensaExtension in the JVM, so each test class is only ever parsed once
+        val shared: ParserCache = RealParserCache()
+    }
+}
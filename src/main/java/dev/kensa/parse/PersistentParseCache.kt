@@ -0,0 +1,165 @@
+package dev.kensa.parse
+
+import com.eclipsesource.json.Json
+import com.eclipsesource.json.JsonArray
+import com.eclipsesource.json.JsonObject
+import com.eclipsesource.json.JsonValue
+import dev.kensa.Colour
+import dev.kensa.Kensa
+import dev.kensa.TextStyle
+import dev.kensa.sentence.Sentence
+import dev.kensa.sentence.SentenceToken
+import dev.kensa.sentence.TokenType
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import java.security.MessageDigest
+import java.util.UUID
+import kotlin.text.Charsets.UTF_8
+import com.eclipsesource.json.Json.`object` as jsonObject
+
+/**
+ * The parser independent result of parsing a single test method.
+ */
+data class ParsedSentences(
+    val parameterNames: List<String>,
+    val sentences: List<Sentence>,
+    val nestedSentences: Map<String, List<Sentence>>
+)
+
+/**
+ * Stores [ParsedSentences] on disk, one file per test method, so that unchanged sources do not need to be parsed again
+ * on subsequent runs. Entries are addressed by a key derived from everything that can affect the parse result (see
+ * [keyFor]), so stale entries are never read - they are simply no longer addressed. Any problem reading or writing an
+ * entry is treated as a cache miss.
+ */
+class PersistentParseCache(private val cacheDir: Path) {
+
+    fun load(key: String): ParsedSentences? =
+        cacheDir.resolve("$key.json").takeIf { Files.isRegularFile(it) }?.let { file ->
+            try {
+                Files.newBufferedReader(file, UTF_8).use { reader -> Json.parse(reader).asObject().toParsedSentences() }
+            } catch (e: Exception) {
+                null
+            }
+        }
+
+    fun store(key: String, parsed: ParsedSentences) {
+        try {
+            Files.createDirectories(cacheDir)
+            val tempFile = Files.createTempFile(cacheDir, key, ".tmp")
+            try {
+                Files.newBufferedWriter(tempFile, UTF_8).use { writer -> parsed.toJson().writeTo(writer) }
+                Files.move(tempFile, cacheDir.resolve("$key.json"), ATOMIC_MOVE, REPLACE_EXISTING)
+            } finally {
+                Files.deleteIfExists(tempFile)
+            }
+        } catch (e: IOException) {
+            // Caching is best effort only - the next run will simply parse the source again
+        }
+    }
+
+    companion object {
+        // Increment whenever the content of ParsedSentences, or the way it is serialised, changes
+        private const val FORMAT_VERSION = "1"
+
+        private val kensaVersion: String by lazy { versionOf(Kensa::class.java) }
+
+        fun keyFor(source: Path, vararg parts: String): String = keyFor(digestOf(source), *parts)
+
+        // Takes the digest of the source rather than the source, so that a source shared by many test methods need only
+        // be read and hashed once
+        fun keyFor(sourceDigest: String, vararg parts: String): String =
+            MessageDigest.getInstance("SHA-256").run {
+                update(FORMAT_VERSION.toByteArray(UTF_8))
+                update(0)
+                update(kensaVersion.toByteArray(UTF_8))
+                update(0)
+                update(sourceDigest.toByteArray(UTF_8))
+                parts.forEach {
+                    update(0)
+                    update(it.toByteArray(UTF_8))
+                }
+                digest().toHex()
+            }
+
+        fun digestOf(source: Path): String =
+            MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(source)).toHex()
+
+        // A snapshot, or classes run straight from an IDE or build directory, can change without its version changing, so
+        // is identified by its code instead. Code that cannot be located is given a version that no other run will share.
+        internal fun versionOf(type: Class<*>): String =
+            type.`package`?.implementationVersion?.takeUnless { it.endsWith("SNAPSHOT") }
+                ?: runCatching { Path.of(type.protectionDomain.codeSource.location.toURI()) }.getOrNull()?.let(::digestOfCode)
+                ?: UUID.randomUUID().toString()
+
+        internal fun digestOfCode(location: Path): String? =
+            try {
+                if (Files.isDirectory(location)) {
+                    MessageDigest.getInstance("SHA-256").run {
+                        Files.walk(location).use { paths ->
+                            paths.filter { Files.isRegularFile(it) }.sorted().forEach { file ->
+                                update(location.relativize(file).toString().toByteArray(UTF_8))
+                                update(0)
+                                update(Files.readAllBytes(file))
+                            }
+                        }
+                        digest().toHex()
+                    }
+                } else {
+                    digestOf(location)
+                }
+            } catch (e: IOException) {
+                null
+            }
+
+        private fun ByteArray.toHex(): String = joinToString("") { "%02x".format(it) }
+
+        private fun ParsedSentences.toJson(): JsonValue =
+            jsonObject()
+                .add("parameterNames", parameterNames.toJsonArray { Json.value(it) })
+                .add("sentences", sentences.toJson())
+                .add("nestedSentences", jsonObject().also { nested -> nestedSentences.forEach { (name, sentences) -> nested.add(name, sentences.toJson()) } })
+
+        private fun List<Sentence>.toJson(): JsonArray = toJsonArray { it.tokens.toJsonTokens() }
+
+        private fun List<SentenceToken>.toJsonTokens(): JsonArray =
+            toJsonArray { token ->
+                jsonObject()
+                    .add("value", token.value)
+                    .add("types", token.tokenTypes.toJsonArray { Json.value(it.name) })
+                    .add("textStyles", token.emphasis.textStyles.toJsonArray { Json.value(it.name) })
+                    .add("textColour", token.emphasis.textColour.name)
+                    .add("backgroundColour", token.emphasis.backgroundColor.name)
+                    .add("nested", token.nestedTokens.toJsonArray { it.toJsonTokens() })
+            }
+
+        private fun <T> Iterable<T>.toJsonArray(transform: (T) -> JsonValue): JsonArray =
+            fold(JsonArray()) { array, item -> array.add(transform(item)) }
+
+        private fun JsonObject.toParsedSentences() =
+            ParsedSentences(
+                get("parameterNames").asArray().map { it.asString() },
+                get("sentences").asArray().toSentences(),
+                get("nestedSentences").asObject().associateBy({ it.name }, { it.value.asArray().toSentences() })
+            )
+
+        private fun JsonArray.toSentences(): List<Sentence> = map { Sentence(it.asArray().toTokens()) }
+
+        private fun JsonArray.toTokens(): List<SentenceToken> =
+            map { it.asObject() }.map { token ->
+                SentenceToken(
+                    token.get("value").asString(),
+                    token.get("types").asArray().mapTo(LinkedHashSet()) { TokenType.valueOf(it.asString()) },
+                    EmphasisDescriptor(
+                        token.get("textStyles").asArray().mapTo(LinkedHashSet()) { TextStyle.valueOf(it.asString()) },
+                        Colour.valueOf(token.get("textColour").asString()),
+                        Colour.valueOf(token.get("backgroundColour").asString())
+                    ),
+                    token.get("nested").asArray().map { it.asArray().toTokens() }
+                )
+            }
+    }
+}
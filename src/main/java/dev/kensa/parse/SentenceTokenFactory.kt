@@ -4,26 +4,19 @@ import dev.kensa.KensaException
 import dev.kensa.parse.Accessor.ValueAccessor.ParameterAccessor
 import dev.kensa.parse.Accessor.ValueAccessor
 import dev.kensa.parse.Accessor.ValueAccessor.MethodAccessor
-import dev.kensa.render.Renderers
 import dev.kensa.sentence.SentenceToken
 import dev.kensa.sentence.TokenType
 import dev.kensa.sentence.TokenType.*
-import dev.kensa.util.NamedValue
-import dev.kensa.util.invokeMethod
 
 class SentenceTokenFactory(
-    private val testInstance: Any,
-    private val arguments: Array<Any?>,
-    private val renderers: Renderers,
-    private val scenarioAccessor: CachingScenarioMethodAccessor,
+    private val values: InvocationValues,
     private val parameters: Map<String, ParameterAccessor>,
     private val properties: Map<String, ValueAccessor>,
-    private val methods: Map<String, MethodAccessor>,
-    private val highlightedValues: Set<NamedValue>
+    private val methods: Map<String, MethodAccessor>
 ) {
 
     fun scenarioValueTokenFrom(token: SentenceToken) = token.value.split(".").let { split ->
-        renderers.renderValue(scenarioAccessor.valueOf(split[0], split[1])).let { value ->
+        values.renderedScenarioValueOf(split[0], split[1]).let { value ->
             SentenceToken(value, HashSet<TokenType>().apply {
                 add(ScenarioValue)
                 takeIf { valueIsHighlighted(value) }?.add(Highlighted)
@@ -32,7 +25,7 @@ class SentenceTokenFactory(
     }
 
     fun fieldValueTokenFrom(token: SentenceToken) = properties[token.value]?.let { pd ->
-        renderers.renderValue(pd.valueOfIn(testInstance)).let { value ->
+        values.renderedValueOf(pd).let { value ->
             SentenceToken(value, HashSet<TokenType>().apply {
                 add(FieldValue)
                 takeIf { pd.isHighlight }?.add(Highlighted)
@@ -42,7 +35,7 @@ class SentenceTokenFactory(
     } ?: throw KensaException("Token with type FieldValue did not refer to an actual field")
 
     fun methodValueTokenFrom(token: SentenceToken) = methods[token.value]?.let { md ->
-        renderers.renderValue(testInstance.invokeMethod<Any>(md.method)).let { value ->
+        values.renderedValueOf(md).let { value ->
             SentenceToken(value, HashSet<TokenType>().apply {
                 add(MethodValue)
                 takeIf { md.isHighlight }?.add(Highlighted)
@@ -52,7 +45,7 @@ class SentenceTokenFactory(
     } ?: throw KensaException("Token with type MethodValue did not refer to an actual method")
 
     fun parameterValueTokenFrom(token: SentenceToken) = parameters[token.value]?.let { pd ->
-        renderers.renderValue(arguments[pd.index]).let { value ->
+        values.renderedValueOf(pd).let { value ->
             SentenceToken(value, HashSet<TokenType>().apply {
                 add(ParameterValue)
                 takeIf { pd.isHighlight }?.add(Highlighted)
@@ -61,5 +54,5 @@ class SentenceTokenFactory(
         }
     } ?: throw KensaException("Token with type ParameterValue did not refer to an actual parameter")
 
-    private fun valueIsHighlighted(value: String) = highlightedValues.any { it.value == value }
+    private fun valueIsHighlighted(value: String) = values.isHighlighted(value)
 }
\ No newline at end of file
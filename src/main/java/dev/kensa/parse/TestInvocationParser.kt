@@ -14,39 +14,28 @@ class TestInvocationParser {
     fun parse(context: TestInvocationContext, methodParser: MethodParser): ParsedTestInvocation =
         try {
             val parsedMethod = methodParser.parse(context.method)
+            val values = InvocationValues(context.instance, context.arguments, configuration.renderers, parsedMethod.properties.filter { it.value.isScenario })
 
             val namedParameterValues = parsedMethod.parameters.descriptors
                 .filterValues { !it.isParameterizedTestDescription }
-                .map { entry ->
-                    NamedValue(entry.key, configuration.renderers.renderValue(entry.value.valueOfIn(context.arguments)))
-                }
+                .map { entry -> NamedValue(entry.key, values.renderedValueOf(entry.value)) }
 
             val highlightedParameterValues = namedParameterValues.filter { namedValue: NamedValue ->
                 parsedMethod.parameters.descriptors[namedValue.name]?.isHighlight ?: false
             }
 
             val highlightedValues = LinkedHashSet<NamedValue>()
-                .plus(highlightedPropertyValues(parsedMethod.properties, context.instance))
+                .plus(highlightedPropertyValues(parsedMethod.properties, values))
                 .plus(highlightedParameterValues)
+                .also { values.highlight(it) }
 
-            val scenarioProperties = parsedMethod.properties.filter { it.value.isScenario }
-
-            val tokenFactory = SentenceTokenFactory(
-                context.instance,
-                context.arguments,
-                configuration.renderers,
-                CachingScenarioMethodAccessor(context.instance, scenarioProperties),
-                parsedMethod.parameters.descriptors,
-                parsedMethod.properties,
-                parsedMethod.methods,
-                highlightedValues
-            )
+            val tokenFactory = SentenceTokenFactory(values, parsedMethod.parameters.descriptors, parsedMethod.properties, parsedMethod.methods)
 
             val sentences = regenerateSentences(parsedMethod.sentences, tokenFactory)
 
 //                sentences.forEach { println(it.squashedTokens) }
 
-            val parameterizedTestDescription: String = parsedMethod.parameters.descriptors.values.find { it.isParameterizedTestDescription }?.valueOfIn(context.arguments)?.toString()
+            val parameterizedTestDescription: String = parsedMethod.parameters.descriptors.values.find { it.isParameterizedTestDescription }?.let { values.rawValueOf(it) }?.toString()
                 ?: namedParameterValues.map { it.value }.joinToString(prefix = "[", postfix = "]")
 
             ParsedTestInvocation(parsedMethod.name, namedParameterValues, sentences, highlightedValues, parameterizedTestDescription)
@@ -69,9 +58,9 @@ class TestInvocationParser {
             }
         }
 
-    private fun highlightedPropertyValues(fields: Map<String, ValueAccessor>, testInstance: Any) = fields.values
+    private fun highlightedPropertyValues(fields: Map<String, ValueAccessor>, values: InvocationValues) = fields.values
         .filter(ValueAccessor::isHighlight)
-        .map { NamedValue(highlightOrFieldNameFor(it), configuration.renderers.renderValue(it.valueOfIn(testInstance))) }
+        .map { NamedValue(highlightOrFieldNameFor(it), values.renderedHighlightValueOf(it)) }
         .toSet()
 
     private fun highlightOrFieldNameFor(accessor: ValueAccessor): String =
@@ -10,7 +10,7 @@ import kotlin.reflect.KProperty
 
 private fun throwAnnotationNotFound(annotation: KClass<out Annotation>): Nothing = throw IllegalStateException("Did not find ${annotation.simpleName}")
 
-private fun accessAndLogError(accessor: () -> Any?): Any? =
+internal fun <T> accessAndLogError(accessor: () -> T): T? =
     try {
         accessor()
     } catch (e: Exception) {
@@ -37,13 +37,15 @@ sealed interface Accessor {
             override val isHighlight: Boolean by lazy { property.hasKotlinOrJavaAnnotation<Highlight>() }
             override val isScenario: Boolean by lazy { property.hasKotlinOrJavaAnnotation<Scenario>() }
             override val isScenarioHolder: Boolean by lazy { property.hasKotlinOrJavaAnnotation<ScenarioHolder>() }
-            override fun valueOfIn(target: Any): Any? = accessAndLogError { property.valueOfKotlinPropertyIn(target) }
+            private val reader by lazy { MemberReader.of(property) }
+            override fun valueOfIn(target: Any): Any? = accessAndLogError { reader.read(target) }
             override val highlight by lazy { property.findKotlinOrJavaAnnotation<Highlight>() ?: throwAnnotationNotFound(Highlight::class) }
         }
 
         class ScenarioHolderAccessor(private val scenarioHolderProperty: KProperty<*>, targetProperty: KProperty<*>) : PropertyAccessor(targetProperty) {
+            private val scenarioHolderReader by lazy { MemberReader.of(scenarioHolderProperty) }
             override fun valueOfIn(target: Any): Any? = accessAndLogError {
-                scenarioHolderProperty.valueOfKotlinPropertyIn(target)?.let {
+                scenarioHolderReader.read(target)?.let {
                     super.valueOfIn(it)
                 }
             }
@@ -55,7 +57,9 @@ sealed interface Accessor {
             override val isHighlight: Boolean by lazy { method.hasAnnotation<Highlight>() }
             override val isScenario: Boolean by lazy { method.hasAnnotation<Scenario>() }
             override val isScenarioHolder: Boolean = false
-            override fun valueOfIn(target: Any): Any? = accessAndLogError { target.invokeMethod(name) }
+            override fun valueOfIn(target: Any): Any? = accessAndLogError { invokeOn(target) }
+            // Reads through the reader cached for the method, whichever way it is read
+            internal fun invokeOn(target: Any): Any? = target.invokeMethod(method)
             override val highlight by lazy { method.findAnnotation<Highlight>() ?: throwAnnotationNotFound(Highlight::class) }
         }
 
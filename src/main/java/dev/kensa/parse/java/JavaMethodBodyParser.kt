@@ -1,17 +1,17 @@
 package dev.kensa.parse.java
 
-import dev.kensa.parse.Event.*
-import dev.kensa.parse.Event.LiteralEvent.NumberLiteralEvent
-import dev.kensa.parse.Event.LiteralEvent.StringLiteralEvent
 import dev.kensa.parse.Java8Lexer.*
 import dev.kensa.parse.Java8Parser
 import dev.kensa.parse.Java8ParserBaseListener
 import dev.kensa.parse.ParserStateMachine
+import dev.kensa.parse.ReusableEvents
 import org.antlr.v4.runtime.ParserRuleContext
 import org.antlr.v4.runtime.tree.TerminalNode
 
 class JavaMethodBodyParser(private val stateMachine: ParserStateMachine) : Java8ParserBaseListener() {
 
+    private val events = ReusableEvents()
+
     //  For Debugging:
 //    override fun enterEveryRule(ctx: ParserRuleContext) {
 //        println("Entering: ${ctx::class} :: ${ctx.text}")
@@ -33,61 +33,61 @@ class JavaMethodBodyParser(private val stateMachine: ParserStateMachine) : Java8
 
     override fun enterMethodBody(ctx: Java8Parser.MethodBodyContext) {
 //        println("Entering: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(EnterTestMethodEvent(ctx))
+        stateMachine.transition(events.enterTestMethod(ctx))
     }
 
     override fun exitMethodBody(ctx: Java8Parser.MethodBodyContext) {
 //        println("Exiting: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(ExitTestMethodEvent(ctx))
+        stateMachine.transition(events.exitTestMethod(ctx))
     }
 
     override fun enterStatement(ctx: Java8Parser.StatementContext) {
 //        println("Entering: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(EnterStatementEvent(ctx))
+        stateMachine.transition(events.enterStatement(ctx))
     }
 
     override fun exitStatement(ctx: Java8Parser.StatementContext) {
 //        println("Exiting: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(ExitStatementEvent(ctx))
+        stateMachine.transition(events.exitStatement(ctx))
     }
 
     override fun enterMethodInvocation(ctx: Java8Parser.MethodInvocationContext) {
 //        println("Entering: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(EnterMethodInvocationEvent(ctx))
+        stateMachine.transition(events.enterMethodInvocation(ctx))
     }
 
     override fun exitMethodInvocation(ctx: Java8Parser.MethodInvocationContext) {
 //        println("Exiting: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(ExitMethodInvocationEvent(ctx))
+        stateMachine.transition(events.exitMethodInvocation(ctx))
     }
 
     override fun enterMethodInvocation_lfno_primary(ctx: Java8Parser.MethodInvocation_lfno_primaryContext) {
 //        println("Entering: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(EnterMethodInvocationEvent(ctx))
+        stateMachine.transition(events.enterMethodInvocation(ctx))
     }
 
     override fun exitMethodInvocation_lfno_primary(ctx: Java8Parser.MethodInvocation_lfno_primaryContext) {
 //        println("Exiting: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(ExitMethodInvocationEvent(ctx))
+        stateMachine.transition(events.exitMethodInvocation(ctx))
     }
 
     override fun enterMethodInvocation_lf_primary(ctx: Java8Parser.MethodInvocation_lf_primaryContext) {
 //        println("Entering: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(EnterMethodInvocationEvent(ctx))
+        stateMachine.transition(events.enterMethodInvocation(ctx))
     }
 
     override fun exitMethodInvocation_lf_primary(ctx: Java8Parser.MethodInvocation_lf_primaryContext) {
 //        println("Exiting: ${ctx::class} :: ${ctx.text}")
-        stateMachine.transition(ExitMethodInvocationEvent(ctx))
+        stateMachine.transition(events.exitMethodInvocation(ctx))
     }
 
     override fun visitTerminal(node: TerminalNode) {
         when (node.symbol.type) {
-            IntegerLiteral, FloatingPointLiteral -> stateMachine.transition(NumberLiteralEvent(node, node.text))
-            CharacterLiteral, StringLiteral -> stateMachine.transition(StringLiteralEvent(node, stripStartEndQuotes(node.text)))
-            Identifier -> stateMachine.transition(IdentifierEvent(node))
+            IntegerLiteral, FloatingPointLiteral -> stateMachine.transition(events.numberLiteral(node, node.text))
+            CharacterLiteral, StringLiteral -> stateMachine.transition(events.stringLiteral(node, stripStartEndQuotes(node.text)))
+            Identifier -> stateMachine.transition(events.identifier(node))
 
-            else -> stateMachine.transition(TerminalNodeEvent(node))
+            else -> stateMachine.transition(events.terminalNode(node))
         }
     }
 
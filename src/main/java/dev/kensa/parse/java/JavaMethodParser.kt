@@ -2,8 +2,8 @@ package dev.kensa.parse.java
 
 import dev.kensa.parse.*
 
-class JavaMethodParser : MethodParser,
-    ParserCache by RealParserCache(),
+class JavaMethodParser(parserCache: ParserCache = RealParserCache()) : MethodParser,
+    ParserCache by parserCache,
     ParserDelegate by JavaParserDelegate {
 
     override val toSimpleTypeName: (Class<*>) -> String = { it.simpleName }
@@ -5,8 +5,8 @@ import dev.kensa.parse.ParserCache
 import dev.kensa.parse.ParserDelegate
 import dev.kensa.parse.RealParserCache
 
-class KotlinFunctionParser : MethodParser,
-    ParserCache by RealParserCache(),
+class KotlinFunctionParser(parserCache: ParserCache = RealParserCache()) : MethodParser,
+    ParserCache by parserCache,
     ParserDelegate by KotlinParserDelegate {
 
     override val toSimpleTypeName: (Class<*>) -> String = { it.kotlin.simpleName ?: throw IllegalArgumentException("Parameter types must have names") }
@@ -1,23 +1,47 @@
 package dev.kensa.parse.state
 
-class StateMachine<STATE : Any, EVENT : Any>(initialState: STATE, private val transitions: Map<Matcher<STATE>, Set<StateMachineBuilder<STATE, EVENT>.Transition<EVENT, STATE>>>) {
+class StateMachine<STATE : Any, EVENT : Any>(initialState: STATE, transitions: Map<Matcher<STATE>, Set<StateMachineBuilder<STATE, EVENT>.Transition<EVENT, STATE>>>) {
 
     var state: STATE = initialState
 
+    private val states: List<CompiledState> = transitions.map { (matcher, stateTransitions) -> CompiledState(matcher, stateTransitions.toList()) }
+
+    // Matchers are tested by class first, so the candidates for each concrete class only need to be found once
+    private val candidateStates = HashMap<Class<*>, List<CompiledState>>()
+
     fun transition(event: EVENT) {
-        val value = transitions.entries.firstOrNull { entry ->
-            entry.key.matches(state)
-        }?.value
-        state = value
-                ?.firstOrNull { it.matcher.matches(event) }
-                ?.transitionFunc?.invoke(state, event)
-                ?: error("No transition for state ${state::class} -> event ${event::class}")
+        val currentState = state
+        state = stateMatching(currentState)
+                ?.transitionMatching(event)
+                ?.transitionFunc?.invoke(currentState, event)
+                ?: error("No transition for state ${currentState::class} -> event ${event::class}")
+    }
+
+    private fun stateMatching(state: STATE): CompiledState? =
+        candidateStates.getOrPut(state.javaClass) { states.filter { it.matcher.matchesClass(state.javaClass) } }
+            .firstOrNullMatching { it.matcher.matchesPredicates(state) }
+
+    private inner class CompiledState(val matcher: Matcher<STATE>, private val transitions: List<StateMachineBuilder<STATE, EVENT>.Transition<EVENT, STATE>>) {
+        private val candidateTransitions = HashMap<Class<*>, List<StateMachineBuilder<STATE, EVENT>.Transition<EVENT, STATE>>>()
+
+        fun transitionMatching(event: EVENT): StateMachineBuilder<STATE, EVENT>.Transition<EVENT, STATE>? =
+            candidateTransitions.getOrPut(event.javaClass) { transitions.filter { it.matcher.matchesClass(event.javaClass) } }
+                .firstOrNullMatching { it.matcher.matchesPredicates(event) }
+    }
+
+    // Indexed loop, as this is called for every event and an iterator would be allocated for each call
+    private inline fun <T> List<T>.firstOrNullMatching(predicate: (T) -> Boolean): T? {
+        for (i in indices) {
+            if (predicate(this[i])) return this[i]
+        }
+        return null
     }
 }
 
 class Matcher<T> private constructor(private val clazz: Class<T>) {
 
-    private val predicates = mutableListOf<(T) -> Boolean>({ clazz.isInstance(it) })
+    // Any conditions beyond the class of the value
+    private val predicates = mutableListOf<(T) -> Boolean>()
 
     fun where(predicate: T.() -> Boolean): Matcher<T> = apply {
         predicates.add {
@@ -25,7 +49,16 @@ class Matcher<T> private constructor(private val clazz: Class<T>) {
         }
     }
 
-    fun matches(value: T) = predicates.all { it(value) }
+    fun matches(value: T) = clazz.isInstance(value) && matchesPredicates(value)
+
+    internal fun matchesClass(valueClass: Class<*>) = clazz.isAssignableFrom(valueClass)
+
+    internal fun matchesPredicates(value: T): Boolean {
+        for (i in predicates.indices) {
+            if (!predicates[i](value)) return false
+        }
+        return true
+    }
 
     companion object {
         fun <T> any(clazz: Class<T>): Matcher<T> = Matcher(clazz)
@@ -1,7 +1,9 @@
 package dev.kensa.render
 
+import dev.kensa.state.CapturedSummary
 import dev.kensa.util.Attributes
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.reflect.KClass
 import kotlin.reflect.full.isSuperclassOf
 
@@ -12,8 +14,16 @@ class Renderers {
     private val valueRenderers: SortedMap<KClass<*>, ValueRenderer<Any>> = TreeMap(SubclassFirstComparator())
     private val interactionRenderers: SortedMap<KClass<*>, InteractionRenderer<Any>> = TreeMap(SubclassFirstComparator())
     private var listRenderer: ValueRenderer<List<*>> = defaultListRenderer
+
+    // Resolved renderer (or lack of one) for each concrete class rendered, cleared whenever renderers are added
+    private val resolvedValueRenderers: MutableMap<Class<*>, Optional<ValueRenderer<Any>>> = ConcurrentHashMap()
+    private val resolvedInteractionRenderers: MutableMap<Class<*>, Optional<InteractionRenderer<Any>>> = ConcurrentHashMap()
     private var listRendererFormat = ListRendererFormat()
 
+    init {
+        addInteractionRenderer(CapturedSummary::class, CapturedSummaryRenderer)
+    }
+
     fun setListRendererFormat(format: ListRendererFormat) {
         listRendererFormat = format
     }
@@ -37,8 +47,10 @@ class Renderers {
     }
 
     @Suppress("UNCHECKED_CAST")
+    @Synchronized
     fun <T : Any> addValueRenderer(klass: KClass<T>, renderer: ValueRenderer<out T>) {
         valueRenderers[klass] = renderer as ValueRenderer<Any>
+        resolvedValueRenderers.clear()
     }
 
     fun <T : Any> addInteractionRenderer(klass: Class<T>, renderer: InteractionRenderer<out T>) {
@@ -46,33 +58,38 @@ class Renderers {
     }
 
     @Suppress("UNCHECKED_CAST")
+    @Synchronized
     fun <T : Any> addInteractionRenderer(klass: KClass<T>, renderer: InteractionRenderer<out T>) {
         interactionRenderers[klass] = renderer as InteractionRenderer<Any>
+        resolvedInteractionRenderers.clear()
     }
 
     fun renderValue(value: Any?): String = value?.let {
         if (it is List<*>) {
             listRenderer.render(it)
         } else {
-            valueRendererFor(value::class)?.render(value) ?: value.toString()
+            valueRendererFor(value.javaClass)?.render(value) ?: value.toString()
         }
     } ?: "NULL"
 
-    private fun valueRendererFor(kClass: KClass<*>): ValueRenderer<Any>? =
-        valueRenderers.entries
-            .filter { entry -> entry.key.isSuperclassOf(kClass) }
-            .map { entry -> entry.value }
-            .firstOrNull()
+    private fun valueRendererFor(type: Class<*>): ValueRenderer<Any>? =
+        (resolvedValueRenderers[type] ?: resolve(type, valueRenderers, resolvedValueRenderers)).orElse(null)
+
+    fun renderInteraction(value: Any, attributes: Attributes): List<RenderedInteraction> = interactionRendererFor(value.javaClass)?.render(value, attributes) ?: listOf(RenderedInteraction("Undefined Value", value.toString()))
 
-    fun renderInteraction(value: Any, attributes: Attributes): List<RenderedInteraction> = interactionRendererFor(value::class)?.render(value, attributes) ?: listOf(RenderedInteraction("Undefined Value", value.toString()))
+    fun renderInteractionAttributes(value: Any): List<RenderedAttributes> = interactionRendererFor(value.javaClass)?.renderAttributes(value) ?: emptyList()
 
-    fun renderInteractionAttributes(value: Any): List<RenderedAttributes> = interactionRendererFor(value::class)?.renderAttributes(value) ?: emptyList()
+    private fun interactionRendererFor(type: Class<*>): InteractionRenderer<Any>? =
+        (resolvedInteractionRenderers[type] ?: resolve(type, interactionRenderers, resolvedInteractionRenderers)).orElse(null)
 
-    private fun interactionRendererFor(kClass: KClass<*>): InteractionRenderer<Any>? =
-        interactionRenderers.entries
-            .filter { entry -> entry.key.isSuperclassOf(kClass) }
-            .map { entry -> entry.value }
-            .firstOrNull()
+    // Synchronized with adding renderers so that a resolution made before an add can never be cached after it
+    @Synchronized
+    private fun <R : Any> resolve(type: Class<*>, renderers: SortedMap<KClass<*>, R>, resolved: MutableMap<Class<*>, Optional<R>>): Optional<R> =
+        resolved.getOrPut(type) {
+            type.kotlin.let { kClass ->
+                Optional.ofNullable(renderers.entries.firstOrNull { entry -> entry.key.isSuperclassOf(kClass) }?.value)
+            }
+        }
 
     private class SubclassFirstComparator : Comparator<KClass<*>?> {
         override fun compare(c1: KClass<*>?, c2: KClass<*>?): Int {
@@ -98,4 +115,10 @@ class Renderers {
     private inner class HeterogeneousListRenderer : ValueRenderer<List<*>> {
         override fun render(value: List<*>): String = value.joinToString(separator = listRendererFormat.separator, prefix = listRendererFormat.prefix, postfix = listRendererFormat.postfix) { renderValue(it) }
     }
+
+    // Summaries of interactions left out by a capture policy read the same in the report as on the diagram
+    private object CapturedSummaryRenderer : InteractionRenderer<CapturedSummary> {
+        override fun render(value: CapturedSummary, attributes: Attributes): List<RenderedInteraction> = listOf(RenderedInteraction("Summary", value.toString()))
+        override fun renderAttributes(value: CapturedSummary): List<RenderedAttributes> = emptyList()
+    }
 }
\ No newline at end of file
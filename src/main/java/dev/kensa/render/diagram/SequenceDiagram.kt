@@ -1,5 +1,18 @@
 package dev.kensa.render.diagram
 
-class SequenceDiagram(private val svg: String) {
-    override fun toString(): String = svg
-}
\ No newline at end of file
+import dev.kensa.KensaException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+
+class SequenceDiagram(private val svg: CompletableFuture<String>) {
+
+    constructor(svg: String) : this(CompletableFuture.completedFuture(svg))
+
+    // Waits for the svg if it is still being rendered in the background
+    override fun toString(): String =
+        try {
+            svg.join()
+        } catch (e: CompletionException) {
+            throw KensaException("Unable to render sequence diagram", e.cause ?: e)
+        }
+}
@@ -8,23 +8,43 @@ import net.sourceforge.plantuml.FileFormat.SVG
 import net.sourceforge.plantuml.FileFormatOption
 import net.sourceforge.plantuml.SourceStringReader
 import java.io.ByteArrayOutputStream
-import java.util.*
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy
+import java.util.concurrent.TimeUnit.SECONDS
+import java.util.concurrent.atomic.AtomicInteger
 import kotlin.collections.ArrayList
 import kotlin.collections.LinkedHashMap
 
-private val keyPattern = "(.*) from (\\w+) to (\\w+)".toRegex()
-private val valuePatterns = listOf(
-    "^\\.\\.\\..*\\.\\.\\.$".toRegex(),
-    "^==.*==$".toRegex()
-)
-
 object SequenceDiagramFactory {
     private val participants: List<String>
         get() = configuration.umlDirectives.flatMap { uml: UmlDirective -> uml.asUml() }
 
+    private val renderThreads = Runtime.getRuntime().availableProcessors().coerceAtLeast(1)
+    private val threadCount = AtomicInteger()
+
+    // Bounded so that a fast test suite cannot queue up unlimited markup; when full the test thread renders the svg itself
+    private val renderExecutor = ThreadPoolExecutor(
+        renderThreads,
+        renderThreads,
+        30, SECONDS,
+        ArrayBlockingQueue(renderThreads * 16),
+        { runnable -> Thread(runnable, "kensa-sequence-diagram-${threadCount.incrementAndGet()}").apply { isDaemon = true } },
+        CallerRunsPolicy()
+    ).apply { allowCoreThreadTimeOut(true) }
+
+    private val pendingRenders: MutableSet<CompletableFuture<String>> = ConcurrentHashMap.newKeySet()
+    private val inFlightRenders: MutableMap<String, CompletableFuture<String>> = ConcurrentHashMap()
+    private val svgCache = SvgCache()
+
+    /**
+     * Captures the PlantUML markup for the interactions immediately, but renders the svg in the background.
+     */
     fun create(interactions: CapturedInteractions): SequenceDiagram? =
         eventsFrom(interactions).takeUnless { it.isEmpty() }?.let { events ->
-            createSvg(
+            renderInBackground(
                 (participants + events)
                     .joinToString("\n",
                         """
@@ -41,7 +61,7 @@ object SequenceDiagramFactory {
 
     private fun eventsFrom(interactions: CapturedInteractions): List<String> {
         return ArrayList<String>().also { events ->
-            interactions.entrySet()
+            interactions.liveEntries()
                 .filter(IsSvgCompatible)
                 .map(ToGroupedSvg)
                 .groupByTo(LinkedHashMap(), { it.first }, { it.second })
@@ -55,30 +75,58 @@ object SequenceDiagramFactory {
         }
     }
 
-    private fun createSvg(plantUmlMarkup: String): SequenceDiagram =
+    /**
+     * Waits for all diagrams submitted so far to finish rendering. Failures are reported when the diagram itself is used.
+     */
+    fun awaitRendering() {
+        CompletableFuture.allOf(*pendingRenders.toTypedArray()).handle { _, _ -> }.join()
+    }
+
+    // Identical markup, e.g. from parameterized tests, shares a single render whether it is in progress or complete
+    private fun renderInBackground(plantUmlMarkup: String): SequenceDiagram {
+        val key = SvgCache.keyFor(plantUmlMarkup)
+        var submitted: CompletableFuture<String>? = null
+        val svg = inFlightRenders.computeIfAbsent(key) { CompletableFuture<String>().also { submitted = it } }
+
+        submitted?.let { render(key, plantUmlMarkup, it) }
+
+        return SequenceDiagram(svg)
+    }
+
+    private fun render(key: String, plantUmlMarkup: String, svg: CompletableFuture<String>) {
+        pendingRenders.add(svg)
+        svg.whenComplete { _, _ ->
+            pendingRenders.remove(svg)
+            inFlightRenders.remove(key, svg)
+        }
+        renderExecutor.execute {
+            try {
+                svg.complete(svgCache.get(key) ?: createSvg(plantUmlMarkup).also { svgCache.put(key, it) })
+            } catch (e: Throwable) {
+                svg.completeExceptionally(e)
+            }
+        }
+    }
+
+    private fun createSvg(plantUmlMarkup: String): String =
         ByteArrayOutputStream().use { os ->
             SourceStringReader(plantUmlMarkup).outputImage(os, FileFormatOption(SVG))
-            SequenceDiagram(os.toString())
+            os.toString()
         }
 }
 
 object IsSvgCompatible : (KensaMap.Entry) -> Boolean {
-    override fun invoke(entry: KensaMap.Entry) =
-        (keyPattern.matches(entry.key.lowercase(Locale.getDefault())) || valuePatterns.any { p -> p.matches(entry.value.toString()) })
-
+    override fun invoke(entry: KensaMap.Entry) = entry.interaction != null || entry.marker != null
 }
 
 object ToGroupedSvg : (KensaMap.Entry) -> Pair<String?, String> {
     override fun invoke(entry: KensaMap.Entry): Pair<String?, String> =
-        keyPattern.matchEntire(entry.key)?.let { result ->
+        entry.interaction?.let { interaction ->
             val interactionId = entry.key.hashCode().toString()
-            val interactionName = result.groupValues[1].trim()
-            val from = result.groupValues[2].trim()
-            val to = result.groupValues[3].trim()
 
             Pair(
-                entry.attributes.group,
-                """$from ${entry.attributes.arrowStyle.value} ${to}:<text class=sequence_diagram_clickable sequence_diagram_interaction_id="$interactionId">${interactionName}</text>"""
+                interaction.group,
+                """${interaction.fromParty} ${interaction.arrowStyle.value} ${interaction.toParty}:<text class=sequence_diagram_clickable sequence_diagram_interaction_id="$interactionId">${interaction.name.trim()}</text>"""
             )
         } ?: Pair(entry.attributes.group, entry.value.toString().trim())
-}
\ No newline at end of file
+}
@@ -0,0 +1,90 @@
+package dev.kensa.render.diagram
+
+import dev.kensa.Kensa.configuration
+import net.sourceforge.plantuml.SourceStringReader
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import java.security.MessageDigest
+import kotlin.text.Charsets.UTF_8
+
+/**
+ * Memoizes rendered svg by a hash of the PlantUML markup it was rendered from. Held in memory up to a total size,
+ * evicting the least recently used diagrams first, and optionally on disk so that diagrams survive between runs.
+ */
+class SvgCache(
+    private val maxBytes: () -> Long = { configuration.svgCacheMaxBytes },
+    private val cacheDir: () -> Path? = { configuration.svgCacheDir }
+) {
+    private val entries = LinkedHashMap<String, String>(16, 0.75f, true)
+    private var totalBytes = 0L
+
+    fun get(key: String): String? =
+        synchronized(this) { entries[key] } ?: cacheDir()?.let { dir -> load(dir, key) }?.also { remember(key, it) }
+
+    fun put(key: String, svg: String) {
+        remember(key, svg)
+        cacheDir()?.let { dir -> store(dir, key, svg) }
+    }
+
+    private fun remember(key: String, svg: String) {
+        synchronized(this) {
+            val limit = maxBytes()
+            val size = sizeOf(svg)
+            if (size > limit) return
+
+            entries.put(key, svg)?.let { totalBytes -= sizeOf(it) }
+            totalBytes += size
+
+            // Iteration is least recently used first
+            with(entries.values.iterator()) {
+                while (totalBytes > limit && hasNext()) {
+                    totalBytes -= sizeOf(next())
+                    remove()
+                }
+            }
+        }
+    }
+
+    private fun load(dir: Path, key: String): String? =
+        dir.resolve("$key.svg").takeIf { Files.isRegularFile(it) }?.let { file ->
+            try {
+                Files.readString(file, UTF_8)
+            } catch (e: IOException) {
+                null
+            }
+        }
+
+    private fun store(dir: Path, key: String, svg: String) {
+        try {
+            Files.createDirectories(dir)
+            val tempFile = Files.createTempFile(dir, key, ".tmp")
+            try {
+                Files.writeString(tempFile, svg, UTF_8)
+                Files.move(tempFile, dir.resolve("$key.svg"), ATOMIC_MOVE, REPLACE_EXISTING)
+            } finally {
+                Files.deleteIfExists(tempFile)
+            }
+        } catch (e: IOException) {
+            // Caching is best effort only - the diagram will simply be rendered again next time
+        }
+    }
+
+    companion object {
+        private val plantUmlVersion: String = SourceStringReader::class.java.`package`?.implementationVersion ?: "unknown"
+
+        // Includes the PlantUML version as a different version may render the same markup differently
+        fun keyFor(plantUmlMarkup: String): String =
+            MessageDigest.getInstance("SHA-256").run {
+                update(plantUmlVersion.toByteArray(UTF_8))
+                update(0)
+                update(plantUmlMarkup.toByteArray(UTF_8))
+                digest().joinToString("") { "%02x".format(it) }
+            }
+
+        // Approximate in-memory size of the string
+        private fun sizeOf(svg: String): Long = svg.length * 2L
+    }
+}
@@ -1,14 +1,27 @@
 package dev.kensa.sentence
 
+import dev.kensa.sentence.scanner.TokenScanner
+
 class Dictionary {
+
+    // Incremented on every change, so that anything derived from the dictionary knows when to discard it
+    @Volatile
+    internal var version: Int = 0
+        private set
+
+    // Shared by all sentence builders, so that identifiers scanned for one test are not scanned again for the next
+    internal val tokenScanner: TokenScanner by lazy { TokenScanner(this) }
+
     private val highlightedIdentifiers: MutableSet<HighlightedIdentifier> = LinkedHashSet()
 
     fun putHighlightedIdentifiers(vararg identifiers: HighlightedIdentifier) {
         highlightedIdentifiers.addAll(identifiers)
+        version++
     }
 
     fun putHighlightedIdentifiers(identifiers: Set<HighlightedIdentifier>) {
         highlightedIdentifiers.addAll(identifiers)
+        version++
     }
 
     private val _acronyms: MutableSet<Acronym> = LinkedHashSet()
@@ -17,14 +30,17 @@ class Dictionary {
 
     fun putAcronyms(vararg acronyms: Acronym) {
         _acronyms.addAll(acronyms)
+        version++
     }
 
     fun putAcronyms(acronyms: Set<Acronym>) {
         _acronyms.addAll(acronyms)
+        version++
     }
 
     fun clearAcronyms() {
         _acronyms.clear()
+        version++
     }
 
     private val _keywords: MutableSet<Keyword> = linkedSetOf(
@@ -38,10 +54,12 @@ class Dictionary {
 
     fun putKeyword(keyWord: Keyword) {
         _keywords.add(keyWord)
+        version++
     }
 
     fun putKeyword(value: String) {
         _keywords.add(Keyword(value))
+        version++
     }
 
     fun putKeywords(vararg values: String) {
@@ -56,8 +74,39 @@ class Dictionary {
         values.forEach(this::putKeyword)
     }
 
-    fun findInterestingIdentifierOrNull(value: String) = highlightedIdentifiers.firstOrNull { it.value == value }
-    fun isAcronym(value: String) = acronyms.any { it.acronym.equals(value, ignoreCase = true) }
-    fun findKeywordOrNull(value: String) = keywords.firstOrNull { it.value == value }
+    // Identifies the dictionary content, for use in cache keys of anything derived from it
+    internal val fingerprint: String
+        get() = "$highlightedIdentifiers|$_acronyms|$_keywords"
+
+    @Volatile
+    private var _compiled: CompiledDictionary? = null
+
+    // Frozen on first use after each change, as lookups vastly outnumber changes
+    internal val compiled: CompiledDictionary
+        get() = _compiled?.takeIf { it.version == version } ?: CompiledDictionary(version, highlightedIdentifiers, _acronyms, _keywords).also { _compiled = it }
+
+    fun findInterestingIdentifierOrNull(value: String) = compiled.findInterestingIdentifierOrNull(value)
+    fun isAcronym(value: String) = compiled.isAcronym(value)
+    fun findKeywordOrNull(value: String) = compiled.findKeywordOrNull(value)
     fun isWhen(value: String) = value.equals("when", ignoreCase = true) || value.equals("whenever", ignoreCase = true)
-}
\ No newline at end of file
+}
+
+/**
+ * An immutable snapshot of a [Dictionary], with hashed lookups in place of scans over its entries.
+ */
+internal class CompiledDictionary(val version: Int, highlightedIdentifiers: Set<HighlightedIdentifier>, acronyms: Set<Acronym>, keywords: Set<Keyword>) {
+    // Earlier entries take precedence, as they did when the sets were scanned in order
+    private val highlightedIdentifiers: Map<String, HighlightedIdentifier> = HashMap<String, HighlightedIdentifier>().apply { highlightedIdentifiers.forEach { putIfAbsent(it.value, it) } }
+    private val foldedAcronyms: Set<String> = acronyms.mapTo(HashSet()) { it.acronym.foldCase() }
+    private val keywords: Map<String, Keyword> = HashMap<String, Keyword>().apply { keywords.forEach { putIfAbsent(it.value, it) } }
+
+    fun findInterestingIdentifierOrNull(value: String) = highlightedIdentifiers[value]
+    fun isAcronym(value: String) = value.foldCase() in foldedAcronyms
+    fun findKeywordOrNull(value: String) = keywords[value]
+
+    companion object {
+        // Folds the same way as String.equals(ignoreCase = true), so that lookups agree with a case-insensitive compare
+        private fun String.foldCase(): String =
+            String(CharArray(length) { Character.toLowerCase(Character.toUpperCase(this[it])) })
+    }
+}
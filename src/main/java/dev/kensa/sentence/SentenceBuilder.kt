@@ -13,7 +13,7 @@ import kotlin.collections.ArrayList
 
 class SentenceBuilder(var lastLocation: Location, private val dictionary: Dictionary) {
     private val tokens: MutableList<SentenceToken> = ArrayList()
-    private val scanner: TokenScanner = TokenScanner(dictionary)
+    private val scanner: TokenScanner = dictionary.tokenScanner
 
     fun appendNested(location: Location, placeholder: String, sentences: List<Sentence>) {
         checkLineAndIndent(location)
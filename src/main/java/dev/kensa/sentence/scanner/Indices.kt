@@ -6,7 +6,7 @@ import java.util.*
 
 class Indices : Iterable<Index> {
 
-    private val indices: SortedSet<Index> = TreeSet { i1: Index, i2: Index ->
+    private val indices: NavigableSet<Index> = TreeSet { i1: Index, i2: Index ->
         if (i1.start == i2.start) {
             i2.end.compareTo(i1.end)
         } else {
@@ -14,8 +14,39 @@ class Indices : Iterable<Index> {
         }
     }
 
+    // Words are added without cancellation, so the next put must check the whole set rather than just the neighbours
+    private var isResolved = true
+
     fun put(type: TokenType, start: Int, end: Int, emphasisDescriptor: EmphasisDescriptor? = null) {
-        indices.add(Index(type, start, end, emphasisDescriptor))
+        val index = Index(type, start, end, emphasisDescriptor)
+        if (!isResolved) {
+            indices.add(index)
+            resolveAll()
+        } else if (indices.add(index)) {
+            resolveAround(index)
+        }
+    }
+
+    fun putWords(words: Set<Index>) {
+        if (indices.addAll(words)) isResolved = false
+    }
+
+    // No resolved indices overlap, so only the preceding index can cancel the new one, and the new one can only
+    // cancel those that follow it directly
+    private fun resolveAround(index: Index) {
+        val preceding = indices.lower(index)
+        if (preceding != null && preceding.cancels(index)) {
+            indices.remove(index)
+        } else {
+            var following = indices.higher(index)
+            while (following != null && index.cancels(following)) {
+                indices.remove(following)
+                following = indices.higher(index)
+            }
+        }
+    }
+
+    private fun resolveAll() {
         var lastIndex: Index? = null
         val iterator = indices.iterator()
         while (iterator.hasNext()) {
@@ -30,13 +61,10 @@ class Indices : Iterable<Index> {
                 lastIndex = thisIndex
             }
         }
-    }
-
-    fun putWords(words: Set<Index>) {
-        indices.addAll(words)
+        isResolved = true
     }
 
     override fun iterator(): MutableIterator<Index> = indices.iterator()
 
     override fun toString(): String = "Indices{indices=$indices}"
-}
\ No newline at end of file
+}
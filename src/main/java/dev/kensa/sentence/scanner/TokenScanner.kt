@@ -1,27 +1,50 @@
 package dev.kensa.sentence.scanner
 
+import dev.kensa.sentence.CompiledDictionary
 import dev.kensa.sentence.Dictionary
 import dev.kensa.sentence.TokenType.*
 
-class TokenScanner(private val dictionary: Dictionary) {
+/**
+ * Splits identifiers into indexed tokens. The same identifiers recur throughout a suite, so results are memoised until
+ * the [Dictionary] changes, keeping at most [maxMemoSize] of the most recently used. Memoised [Indices] are shared between
+ * callers and must not be modified.
+ */
+class TokenScanner(private val dictionary: Dictionary, private val maxMemoSize: Int = DEFAULT_MAX_MEMO_SIZE) {
+
+    @Volatile
+    private var memo = Memo(dictionary.version, maxMemoSize)
 
     fun scan(string: String, isFirstInSentence: Boolean): Pair<String, Indices> =
-        normaliseKeywords(string).let {
-            Pair(
-                it,
-                Indices().apply {
-                    if (!scanForHighlightedIdentifier(it, this)) {
-                        if(isFirstInSentence)
-                            scanForKeywords(it, this)
-
-                        scanForAcronyms(it, this)
-                        scanForWords(it, this)
-                    }
-                }
-            )
+        currentMemo().let { memo ->
+            (if (isFirstInSentence) memo.firstInSentence else memo.notFirstInSentence).getOrPut(string) {
+                scanUncached(string, isFirstInSentence)
+            }
         }
 
-    private fun scanForHighlightedIdentifier(string: String, indices: Indices) =
+    private fun currentMemo(): Memo =
+        memo.takeIf { it.version == dictionary.version } ?: Memo(dictionary.version, maxMemoSize).also { memo = it }
+
+    private fun scanUncached(string: String, isFirstInSentence: Boolean): Pair<String, Indices> {
+        val compiled = dictionary.compiled
+        val words = camelCaseSplit(string)
+        val normalised = normaliseKeywords(string, words)
+        val normalisedWords = if (normalised === string) words else camelCaseSplit(normalised)
+
+        return Pair(
+            normalised,
+            Indices().apply {
+                if (!scanForHighlightedIdentifier(compiled, normalised, this)) {
+                    if (isFirstInSentence)
+                        scanForKeywords(compiled, normalisedWords, this)
+
+                    scanForAcronyms(compiled, normalisedWords, this)
+                    scanForWords(normalised, this)
+                }
+            }
+        )
+    }
+
+    private fun scanForHighlightedIdentifier(dictionary: CompiledDictionary, string: String, indices: Indices) =
         dictionary.findInterestingIdentifierOrNull(string)?.let {
             indices.put(HighlightedIdentifier, 0, string.length, it.emphasisDescriptor)
             true
@@ -32,53 +55,95 @@ class TokenScanner(private val dictionary: Dictionary) {
         var lastIndexEnd = 0
         for ((_, start, end) in indices) {
             if (lastIndexEnd < start) {
-                splitIntoWords(wordList, string.substring(lastIndexEnd, start), lastIndexEnd)
+                splitIntoWords(wordList, string, lastIndexEnd, start)
             }
             lastIndexEnd = end
         }
         if (lastIndexEnd < string.length) {
-            splitIntoWords(wordList, string.substring(lastIndexEnd), lastIndexEnd)
+            splitIntoWords(wordList, string, lastIndexEnd, string.length)
         }
         indices.putWords(wordList)
     }
 
-    private fun splitIntoWords(words: MutableSet<Index>, segment: String, offset: Int) {
-        var segmentOffset = 0
-        for (word in camelCaseSplit(segment)) {
-            words.add(Index(Word, offset + segmentOffset, offset + segmentOffset + word.length))
-            segmentOffset += word.length
-        }
+    private fun splitIntoWords(words: MutableSet<Index>, string: String, start: Int, end: Int) {
+        forEachCamelCaseWord(string, start, end) { wordStart, wordEnd -> words.add(Index(Word, wordStart, wordEnd)) }
     }
 
-    private fun scanForAcronyms(string: String, indices: Indices) {
-        for (word in camelCaseSplit(string)) {
+    // The words are contiguous, so each one starts where the previous one ended
+    private fun scanForAcronyms(dictionary: CompiledDictionary, words: List<String>, indices: Indices) {
+        var start = 0
+        for (word in words) {
             if (dictionary.isAcronym(word)) {
-                indices.put(Acronym, string.indexOf(word), string.indexOf(word) + word.length)
+                indices.put(Acronym, start, start + word.length)
             }
+            start += word.length
         }
     }
 
-    private fun normaliseKeywords(string: String): String {
-        val strings = camelCaseSplit(string)
-        val word = strings.first()
+    private fun normaliseKeywords(string: String, words: List<String>): String {
+        val word = words.first()
 
         return if (dictionary.isWhen(word)) {
-            "when" + strings.drop(1).joinToString("")
+            "when" + string.substring(word.length)
         } else string
     }
 
-    private fun scanForKeywords(string: String, indices: Indices) {
-        val strings = camelCaseSplit(string)
-        val word = strings.first()
+    private fun scanForKeywords(dictionary: CompiledDictionary, words: List<String>, indices: Indices) {
+        val word = words.first()
 
         dictionary.findKeywordOrNull(word)?.also {
-            indices.put(Keyword, string.indexOf(word), string.indexOf(word) + word.length, it.emphasisDescriptor)
+            indices.put(Keyword, 0, word.length, it.emphasisDescriptor)
         }
     }
 
-    private fun camelCaseSplit(string: String): List<String> = CAMEL_CASE_SPLITTER.split(string)
+    private class Memo(val version: Int, maxSize: Int) {
+        val firstInSentence = Scans(maxSize)
+        val notFirstInSentence = Scans(maxSize)
+    }
+
+    // Evicts the least recently used scan once full. Reads reorder the map too, so every access is made under its lock,
+    // but scanning is not, so that threads scanning different identifiers do not wait for one another.
+    private class Scans(private val maxSize: Int) {
+        private val scans = object : LinkedHashMap<String, Pair<String, Indices>>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Pair<String, Indices>>): Boolean = size > maxSize
+        }
+
+        fun getOrPut(string: String, scan: () -> Pair<String, Indices>): Pair<String, Indices> =
+            synchronized(scans) { scans[string] } ?: scan().let { scanned ->
+                synchronized(scans) { scans.putIfAbsent(string, scanned) ?: scanned }
+            }
+    }
 
     companion object {
-        private val CAMEL_CASE_SPLITTER = "(?<=[a-z])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])|(?<=[a-z])(?=[0-9])|(?<=[0-9])(?=[A-Z])".toRegex()
+        private const val DEFAULT_MAX_MEMO_SIZE = 10_000
+
+        internal fun camelCaseSplit(string: String): List<String> =
+            if (string.isEmpty()) listOf(string) else ArrayList<String>(4).apply {
+                forEachCamelCaseWord(string, 0, string.length) { start, end -> add(string.substring(start, end)) }
+            }
+
+        // Splits between aB, between A and Bc, between a1 and between 1A, considering only characters in [start, end)
+        private inline fun forEachCamelCaseWord(string: String, start: Int, end: Int, onWord: (Int, Int) -> Unit) {
+            var wordStart = start
+            for (i in start + 1 until end) {
+                val previous = string[i - 1]
+                val current = string[i]
+                val isBoundary = when {
+                    previous.isAsciiLower() -> current.isAsciiUpper() || current.isAsciiDigit()
+                    previous.isAsciiUpper() -> current.isAsciiUpper() && i + 1 < end && string[i + 1].isAsciiLower()
+                    previous.isAsciiDigit() -> current.isAsciiUpper()
+                    else -> false
+                }
+                if (isBoundary) {
+                    onWord(wordStart, i)
+                    wordStart = i
+                }
+            }
+            if (wordStart < end) onWord(wordStart, end)
+        }
+
+        private fun Char.isAsciiLower() = this in 'a'..'z'
+        private fun Char.isAsciiUpper() = this in 'A'..'Z'
+        private fun Char.isAsciiDigit() = this in '0'..'9'
     }
-}
\ No newline at end of file
+}
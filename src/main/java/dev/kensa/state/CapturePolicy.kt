@@ -0,0 +1,38 @@
+package dev.kensa.state
+
+/**
+ * Limits how many interactions are kept for each edge, i.e. each combination of from party, to party and content
+ * descriptor. Interactions beyond the limit are not kept, and the diagram and report show how many were left out
+ * instead. They are still counted by the [IndexedInteractions] queries on [CapturedInteractions].
+ */
+class CapturePolicy private constructor(val maxPerEdge: Int, val retention: Retention) {
+
+    enum class Retention {
+        // Keeps the first interactions on an edge and leaves out those that come later
+        First,
+
+        // Keeps the latest interactions on an edge, leaving out the oldest as new ones arrive
+        Latest
+    }
+
+    val isUnbounded: Boolean
+        get() = maxPerEdge == Int.MAX_VALUE
+
+    companion object {
+        private val UNBOUNDED = CapturePolicy(Int.MAX_VALUE, Retention.First)
+
+        @JvmStatic
+        fun unbounded(): CapturePolicy = UNBOUNDED
+
+        @JvmStatic
+        fun keepFirst(maxPerEdge: Int): CapturePolicy = bounded(maxPerEdge, Retention.First)
+
+        @JvmStatic
+        fun keepLatest(maxPerEdge: Int): CapturePolicy = bounded(maxPerEdge, Retention.Latest)
+
+        private fun bounded(maxPerEdge: Int, retention: Retention): CapturePolicy {
+            require(maxPerEdge > 0) { "MaxPerEdge must be greater than zero." }
+            return CapturePolicy(maxPerEdge, retention)
+        }
+    }
+}
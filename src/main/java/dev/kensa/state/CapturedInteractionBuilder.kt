@@ -5,6 +5,8 @@ import dev.kensa.util.Attributes
 import dev.kensa.util.Attributes.Companion.of
 import dev.kensa.util.Attributes.Key.Arrow
 import dev.kensa.util.Attributes.Key.Group
+import dev.kensa.util.KensaMap
+import dev.kensa.util.KensaMap.Interaction
 import java.time.Instant
 
 class CapturedInteractionBuilder private constructor(private val fromParty: Party) {
@@ -39,9 +41,13 @@ class CapturedInteractionBuilder private constructor(private val fromParty: Part
         attributes = group?.let { attributes.merge(of(Group, it, Arrow, arrowStyle)) }
             ?: attributes.merge(of(Arrow, arrowStyle))
 
-        val key = "$contentDescriptor __idx __from ${fromParty.asString()} to ${toParty!!.asString()}"
+        val from = fromParty.asString()
+        val to = toParty!!.asString()
+        val timestamp = timestamp ?: System.currentTimeMillis()
 
-        interactions.putWithUniqueKey(key, content, timestamp ?: System.currentTimeMillis(), attributes)
+        interactions.putInteraction("$contentDescriptor", from, to) { key, index ->
+            KensaMap.Entry(key, content, timestamp, attributes, Interaction("$contentDescriptor", index, from, to, attributes.group, attributes.arrowStyle))
+        }
     }
 
     companion object {
@@ -4,12 +4,75 @@ import dev.kensa.util.Attributes
 import dev.kensa.util.Attributes.Companion.emptyAttributes
 import dev.kensa.util.Attributes.Key.Group
 import dev.kensa.util.KensaMap
+import dev.kensa.state.CapturePolicy.Retention.First
+import dev.kensa.util.KensaMap.Marker.Divider
+import dev.kensa.util.KensaMap.Marker.Summary
+import dev.kensa.util.KensaMap.Marker.TimePassing
+import dev.kensa.util.KensaMap.UniqueKey
+import java.time.Duration
+import java.util.ArrayDeque
+import java.util.Deque
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.ConcurrentNavigableMap
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import java.util.concurrent.locks.StampedLock
+import kotlin.concurrent.withLock
 
-class CapturedInteractions : KensaMap<CapturedInteractions>() {
+class CapturedInteractions(var capturePolicy: CapturePolicy = CapturePolicy.unbounded()) : KensaMap<CapturedInteractions>() {
 
     var isUnderTestEnabled = true
     var isUnderTest = false
 
+    private val edges: ConcurrentMap<Edge, EdgeState> = ConcurrentHashMap()
+
+    // Every entry is numbered in the order the puts were made, once it can be read. The entries still in place are
+    // only indexed by number once an incremental extractor first reads them, after which each extractor just keeps a
+    // cursor. Puts share the lock, which is only held exclusively while a reader takes the highest number, so every
+    // entry up to that number is already indexed.
+    private val arrivalNumbers = AtomicLong()
+    private val arrivalLock = StampedLock()
+    private val arrivals: ConcurrentNavigableMap<Long, Entry> = ConcurrentSkipListMap()
+
+    @Volatile
+    private var arrivalsIndexed = false
+
+    // Counts every change, so that a waiter can tell whether anything was captured since it last looked. The lock is
+    // only taken when someone is waiting.
+    private val changes = AtomicLong()
+    private val waiters = AtomicInteger()
+    private val lock = ReentrantLock()
+    private val changedCondition = lock.newCondition()
+
+    internal val version: Long
+        get() = changes.get()
+
+    private val byParties: ConcurrentMap<Pair<String, String>, IndexedInteractions> = ConcurrentHashMap()
+    private val byDescriptor: ConcurrentMap<String, IndexedInteractions> = ConcurrentHashMap()
+    private val byPayloadClass: ConcurrentMap<Class<*>, IndexedInteractions> = ConcurrentHashMap()
+
+    /**
+     * The interactions captured from one party to another.
+     */
+    fun between(from: Party, to: Party): IndexedInteractions = between(from.asString(), to.asString())
+
+    fun between(fromParty: String, toParty: String): IndexedInteractions = byParties[Pair(fromParty, toParty)] ?: IndexedInteractions.empty
+
+    /**
+     * The interactions captured with a content descriptor, whatever their index.
+     */
+    fun withDescriptor(descriptor: String): IndexedInteractions = byDescriptor[descriptor] ?: IndexedInteractions.empty
+
+    /**
+     * The interactions and other entries whose value is exactly of the given class. Markers are not included.
+     */
+    fun ofType(type: Class<*>): IndexedInteractions = byPayloadClass[type] ?: IndexedInteractions.empty
+
+    inline fun <reified T> ofType(): IndexedInteractions = ofType(T::class.java)
+
     fun capture(builder: CapturedInteractionBuilder) {
         with(builder) {
             if (isUnderTestEnabled) {
@@ -19,21 +82,168 @@ class CapturedInteractions : KensaMap<CapturedInteractions>() {
         }
     }
 
+    // Captured interactions are subject to the capture policy; those put directly are always kept
+    internal fun putInteraction(descriptor: String, fromParty: String, toParty: String, entryFor: (String, Int) -> Entry) {
+        // Equivalent to the key "<descriptor> __idx __from <from> to <to>"
+        val key = UniqueKey("$descriptor ", "", " ", "from $fromParty to $toParty")
+        val policy = capturePolicy
+        if (policy.isUnbounded) {
+            putWithUniqueKey(key, entryFor)
+            return
+        }
+
+        val edge = Edge(descriptor, fromParty, toParty)
+        val state = edges.computeIfAbsent(edge) { EdgeState() }
+        synchronized(state) {
+            when {
+                state.kept.size < policy.maxPerEdge -> state.kept.addLast(putWithUniqueKey(key, entryFor))
+                // Built only so that it is counted by the indexes it would have been in
+                policy.retention == First -> leaveOut(edge, state, entryFor(key.withIndex(0), 0))
+                else -> {
+                    state.kept.addLast(putWithUniqueKey(key, entryFor))
+                    state.kept.removeFirst().let { oldest ->
+                        removeEntry(oldest.key)
+                        leaveOut(edge, state, oldest)
+                    }
+                }
+            }
+        }
+    }
+
+    // The summary keeps the place of the first interaction left out, and is replaced rather than changed as more are
+    private fun leaveOut(edge: Edge, state: EdgeState, entry: Entry) {
+        forEachIndexOf(entry, true) { it.countLeftOut() }
+        state.leftOut++
+        state.summary = (state.summary?.let { Entry(it.key, CapturedSummary(state.leftOut), it.timestamp, it.attributes, marker = Summary) }
+            ?: Entry("Summary of ${edge.descriptor} from ${edge.fromParty} to ${edge.toParty}", CapturedSummary(state.leftOut), entry.timestamp, groupOf(entry), marker = Summary))
+            .also { putEntry(it) }
+    }
+
+    private fun groupOf(entry: Entry): Attributes = entry.attributes.group?.let { Attributes.of(Group, it) } ?: emptyAttributes()
+
     fun captureTimePassing(message: String = "Some Time Later") {
-        put(sdMarkerKey, "...$message...", attributes = if (isUnderTest) Attributes.of(Group, "Test") else emptyAttributes())
+        putMarker(TimePassing, "...$message...")
     }
 
     fun divider(message: String = "") {
-        put(sdMarkerKey, "==$message==", attributes = if (isUnderTest) Attributes.of(Group, "Test") else emptyAttributes())
+        putMarker(Divider, "==$message==")
     }
 
+    private fun putMarker(marker: Marker, value: String) {
+        putEntry(Entry(sdMarkerKey, value, System.currentTimeMillis(), if (isUnderTest) Attributes.of(Group, "Test") else emptyAttributes(), marker = marker))
+    }
+
+    // Interactions and markers put directly, rather than captured, are recognised once here by their key or value
+    override fun entryFor(key: String, value: Any?, timestamp: Long, attributes: Attributes): Entry =
+        Entry(
+            key,
+            value,
+            timestamp,
+            attributes,
+            interactionKeyPattern.matchEntire(key)?.let { Interaction(it.groupValues[1].trim(), 0, it.groupValues[2], it.groupValues[3], attributes.group, attributes.arrowStyle) },
+            value?.toString()?.let { v -> markerPatterns.entries.firstOrNull { it.value.matches(v) }?.key }
+        )
+
     fun disableUnderTest() {
         isUnderTestEnabled = false
     }
 
-    fun containsEntriesMatching(predicate: (Entry) -> Boolean): Boolean = entrySet().any(predicate)
+    override fun placed(entry: Entry, sequence: Long, replaced: Entry?) {
+        replaced?.let { removed(it, sequence) }
+        forEachIndexOf(entry, true) { index -> index.add(entry, sequence) }
+    }
+
+    override fun removed(entry: Entry, sequence: Long) {
+        forEachIndexOf(entry, false) { index -> index.remove(entry, sequence) }
+        if (arrivalsIndexed) withArrivalsShared { arrivals.remove(entry.arrivalNumber, entry) }
+    }
+
+    private fun forEachIndexOf(entry: Entry, create: Boolean, action: (IndexedInteractions) -> Unit) {
+        fun <K> ConcurrentMap<K, IndexedInteractions>.indexFor(key: K) = if (create) computeIfAbsent(key) { IndexedInteractions() } else get(key)
+
+        entry.interaction?.let { interaction ->
+            byParties.indexFor(Pair(interaction.fromParty, interaction.toParty))?.let(action)
+            byDescriptor.indexFor(interaction.descriptor)?.let(action)
+        }
+        if (entry.marker == null) {
+            entry.value?.let { byPayloadClass.indexFor(it.javaClass)?.let(action) }
+        }
+    }
+
+    override fun changed(entry: Entry) {
+        withArrivalsShared {
+            entry.arrivalNumber = arrivalNumbers.incrementAndGet()
+            if (arrivalsIndexed) arrivals[entry.arrivalNumber] = entry
+        }
+        changes.incrementAndGet()
+        if (waiters.get() > 0) lock.withLock { changedCondition.signalAll() }
+    }
+
+    /**
+     * Waits until something is captured after [version] was read, or until the timeout passes, and returns the current version.
+     */
+    internal fun awaitChange(version: Long, timeout: Duration): Long {
+        waiters.incrementAndGet()
+        try {
+            lock.withLock {
+                var remaining = timeout.toNanos()
+                while (changes.get() == version && remaining > 0) {
+                    remaining = changedCondition.awaitNanos(remaining)
+                }
+            }
+        } finally {
+            waiters.decrementAndGet()
+        }
+        return changes.get()
+    }
+
+    /**
+     * Passes each entry still in place that was put after [cursor], in the order they were put, to [action], and returns
+     * the cursor to pass next time. An entry put again under the same key is passed again, but one replaced or left out
+     * before it was passed is not. The first cursor is 0. Nothing is kept for the caller other than the cursor it holds.
+     */
+    internal fun forEachPutSince(cursor: Long, action: (Entry) -> Unit): Long {
+        val stamp = arrivalLock.writeLock()
+        val limit = try {
+            if (!arrivalsIndexed) {
+                liveEntries().forEach { if (it.arrivalNumber != 0L) arrivals[it.arrivalNumber] = it }
+                arrivalsIndexed = true
+            }
+            arrivalNumbers.get()
+        } finally {
+            arrivalLock.unlockWrite(stamp)
+        }
+        arrivals.subMap(cursor, false, limit, true).values.forEach(action)
+
+        return limit
+    }
+
+    private inline fun withArrivalsShared(action: () -> Unit) {
+        val stamp = arrivalLock.readLock()
+        try {
+            action()
+        } finally {
+            arrivalLock.unlockRead(stamp)
+        }
+    }
+
+    fun containsEntriesMatching(predicate: (Entry) -> Boolean): Boolean = liveEntries().any(predicate)
+
+    private data class Edge(val descriptor: String, val fromParty: String, val toParty: String)
+
+    private class EdgeState {
+        val kept: Deque<Entry> = ArrayDeque()
+        var leftOut = 0L
+        var summary: Entry? = null
+    }
 
     companion object {
         const val sdMarkerKey = "SD-MARKER"
+
+        private val interactionKeyPattern = "(.*) from (\\w+) to (\\w+)".toRegex()
+        private val markerPatterns = mapOf(
+            TimePassing to "^\\.\\.\\..*\\.\\.\\.$".toRegex(),
+            Divider to "^==.*==$".toRegex()
+        )
     }
 }
\ No newline at end of file
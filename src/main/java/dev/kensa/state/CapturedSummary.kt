@@ -0,0 +1,11 @@
+package dev.kensa.state
+
+import java.util.Locale
+
+/**
+ * Stands in for the interactions on an edge that a [CapturePolicy] left out, and is rendered as a sequence diagram
+ * delay, e.g. "...and 9,412 more...". A summary never changes once captured; a new one replaces it as more are left out.
+ */
+data class CapturedSummary(val leftOut: Long) {
+    override fun toString(): String = String.format(Locale.ROOT, "...and %,d more...", leftOut)
+}
@@ -0,0 +1,50 @@
+package dev.kensa.state
+
+import dev.kensa.util.KensaMap.Entry
+import java.util.concurrent.ConcurrentNavigableMap
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * The captured interactions that share a party pair, descriptor or payload class, kept up to date as interactions are
+ * captured and held in the same order as [CapturedInteractions.entrySet]. Like the interactions themselves, a view can
+ * be read while interactions are being captured.
+ *
+ * Interactions left out by a [CapturePolicy] are still counted by [count], but cannot be returned by the other queries.
+ */
+class IndexedInteractions internal constructor() {
+
+    private val entries: ConcurrentNavigableMap<Order, Entry> = ConcurrentSkipListMap()
+    private val size = AtomicInteger()
+    private val leftOut = AtomicInteger()
+
+    fun latest(): Entry? = entries.lastEntry()?.value
+
+    // A live, read-only view
+    fun all(): Collection<Entry> = entries.values
+
+    fun count(): Int = size.get() + leftOut.get()
+
+    fun firstAfter(timestamp: Long): Entry? = entries.higherEntry(Order(timestamp, Long.MAX_VALUE))?.value
+
+    internal fun add(entry: Entry, sequence: Long) {
+        if (entries.put(Order(entry.timestamp, sequence), entry) == null) size.incrementAndGet()
+    }
+
+    internal fun remove(entry: Entry, sequence: Long) {
+        if (entries.remove(Order(entry.timestamp, sequence), entry)) size.decrementAndGet()
+    }
+
+    internal fun countLeftOut() {
+        leftOut.incrementAndGet()
+    }
+
+    private data class Order(val timestamp: Long, val sequence: Long) : Comparable<Order> {
+        override fun compareTo(other: Order): Int =
+            compareValuesBy(this, other, Order::timestamp, Order::sequence)
+    }
+
+    internal companion object {
+        val empty = IndexedInteractions()
+    }
+}
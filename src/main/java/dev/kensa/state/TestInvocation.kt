@@ -23,16 +23,14 @@ class TestInvocation(
     val highlightedValues: Collection<NamedValue> = parsedTestInvocation.highlightedValues
     val state: TestState
 
-    private val _givens = givens
+    // Taken once the test has finished, so that anything captured afterwards, e.g. asynchronously, is not reported
     val givens: Set<KensaMap.Entry>
-        get() = _givens.entrySet()
-
-    private val _interactions = interactions
     val interactions: Set<KensaMap.Entry>
-        get() = _interactions.entrySet()
 
     init {
-        _givens.putNamedValues(highlightedValues)
+        givens.putNamedValues(highlightedValues)
+        this.givens = givens.entrySet()
+        this.interactions = interactions.entrySet()
         state = if (executionException == null) Passed else Failed
     }
 }
\ No newline at end of file
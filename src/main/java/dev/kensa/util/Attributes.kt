@@ -27,12 +27,13 @@ class Attributes private constructor(private val attributes: Map<String, Any?>)
     val arrowStyle: ArrowStyle
         get() = getOrDefault(Arrow, UmlSynchronous)
 
+    // Keys keep their first position and take the value from other where both have them
     fun merge(other: Attributes): Attributes =
-            Attributes(
-                    (asSequence() + other.asSequence())
-                            .distinct()
-                            .associateByTo(LinkedHashMap(), { it.key }, { it.value })
-            )
+            when {
+                other.isEmpty -> this
+                isEmpty -> other
+                else -> Attributes(LinkedHashMap(attributes).apply { putAll(other.attributes) })
+            }
 
     override fun iterator(): Iterator<Map.Entry<String, Any?>> = attributes.entries.iterator()
 
@@ -1,65 +1,209 @@
 package dev.kensa.util
 
+import dev.kensa.render.diagram.directive.ArrowStyle
 import dev.kensa.util.Attributes.Companion.emptyAttributes
-import java.util.*
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.ConcurrentNavigableMap
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 
+/**
+ * Entries are held by key for lookups, and separately in timestamp order so that reading them never needs a sort.
+ * Neither structure is locked, so many threads can capture at once; readers of [liveEntries] see a weakly consistent
+ * view, while [entrySet] takes a snapshot of it.
+ */
 abstract class KensaMap<M : KensaMap<M>> {
 
-    private val lock = Any()
-    private val values: MutableMap<String, Entry> = LinkedHashMap()
+    private val values: ConcurrentMap<String, Slot> = ConcurrentHashMap()
+    private val ordered: ConcurrentNavigableMap<Position, Entry> = ConcurrentSkipListMap()
+    private val sequence = AtomicLong()
+    private val nextIndices: ConcurrentMap<UniqueKey, AtomicInteger> = ConcurrentHashMap()
+    private val liveEntries: Collection<Entry> = Collections.unmodifiableCollection(ordered.values)
 
-    fun put(value: Any, timestamp: Long = System.currentTimeMillis()): M = putWithUniqueKey(value.javaClass.simpleName + "__idx__", value,timestamp, emptyAttributes())
+    fun put(value: Any, timestamp: Long = System.currentTimeMillis()): M = putWithUniqueKey(UniqueKey(value.javaClass.simpleName), value, timestamp, emptyAttributes())
 
     @JvmOverloads
-    fun put(key: String, value: Any?, timestamp: Long = System.currentTimeMillis(), attributes: Attributes = emptyAttributes()): M = self().apply {
-        synchronized(lock) { values[key] = Entry(key, value, timestamp, attributes) }
+    fun put(key: String, value: Any?, timestamp: Long = System.currentTimeMillis(), attributes: Attributes = emptyAttributes()): M =
+        putEntry(entryFor(key, value, timestamp, attributes))
+
+    // Called while an entry is put, before any other put with the same key, with its sequence amongst entries with the
+    // same timestamp and the entry it replaces. A replaced entry had the same sequence.
+    protected open fun placed(entry: Entry, sequence: Long, replaced: Entry?) {}
+
+    // Called while an entry is removed, with its sequence amongst entries with the same timestamp
+    protected open fun removed(entry: Entry, sequence: Long) {}
+
+    // Called after every put, once the new entry can be read
+    protected open fun changed(entry: Entry) {}
+
+    // Creates the entries for keys and values supplied directly, rather than through a typed capture
+    protected open fun entryFor(key: String, value: Any?, timestamp: Long, attributes: Attributes): Entry = Entry(key, value, timestamp, attributes)
+
+    internal fun putEntry(entry: Entry): M = self().apply {
+        values.compute(entry.key) { _, existing ->
+            // A replaced entry keeps its original place amongst entries with the same timestamp
+            Slot(entry, Position(entry.timestamp, existing?.position?.sequence ?: sequence.getAndIncrement())).also { slot ->
+                ordered[slot.position] = slot.entry
+                existing?.position?.takeUnless { it == slot.position }?.let { ordered.remove(it) }
+                placed(entry, slot.position.sequence, existing?.entry)
+            }
+        }
+        changed(entry)
+    }
+
+    internal fun putWithUniqueKey(key: String, value: Any?, timestamp: Long = System.currentTimeMillis(), attributes: Attributes = emptyAttributes()): M =
+        putWithUniqueKey(UniqueKey.parse(key) ?: throw IllegalArgumentException("Must specify __key__ placeholder"), value, timestamp, attributes)
+
+    private fun putWithUniqueKey(key: UniqueKey, value: Any?, timestamp: Long, attributes: Attributes): M = self().apply {
+        putWithUniqueKey(key) { uniqueKey, _ -> entryFor(uniqueKey, value, timestamp, attributes) }
     }
 
-    internal fun putWithUniqueKey(key: String, value: Any?, timestamp: Long = System.currentTimeMillis(), attributes: Attributes = emptyAttributes()): M = self().apply {
-        fun baseKeyFrom(result: MatchResult) = result.groups["prefix"]?.value + result.groups["suffix"]?.value
-        fun indexedKeyFrom(result: MatchResult, index: Int) = (result.groups["prefix"]?.value + (result.groups["prekey"]?.value + index +
-                if (result.groups["suffix"]?.value?.isNotBlank() == true) result.groups["postkey"]?.value else "") + result.groups["suffix"]?.value)
-
-        KEY_REGEX.matchEntire(key)?.let { result ->
-            synchronized(lock) {
-                var realKey = baseKeyFrom(result)
-                if (values.containsKey(realKey)) {
-                    var i = 1
-                    do {
-                        realKey = indexedKeyFrom(result, i++)
-                    } while (values.containsKey(realKey))
+    // The counter makes allocation O(1); a key may still have been taken by an explicit put, so the next index is tried
+    internal fun putWithUniqueKey(key: UniqueKey, entryFor: (String, Int) -> Entry): Entry {
+        val nextIndex = nextIndices.computeIfAbsent(key) { AtomicInteger() }
+        var inserted = putIfAbsent(key, nextIndex.getAndIncrement(), entryFor)
+        while (inserted == null) {
+            // Key taken, try the next index
+            inserted = putIfAbsent(key, nextIndex.getAndIncrement(), entryFor)
+        }
+        changed(inserted)
+        return inserted
+    }
+
+    private fun putIfAbsent(key: UniqueKey, index: Int, entryFor: (String, Int) -> Entry): Entry? {
+        var inserted: Entry? = null
+        values.computeIfAbsent(key.withIndex(index)) { uniqueKey ->
+            entryFor(uniqueKey, index).let { entry ->
+                Slot(entry, Position(entry.timestamp, sequence.getAndIncrement())).also { slot ->
+                    ordered[slot.position] = slot.entry
+                    placed(entry, slot.position.sequence, null)
+                    inserted = entry
                 }
-                values[realKey] = Entry(realKey, value, timestamp, attributes)
             }
-        } ?: throw IllegalArgumentException("Must specify __key__ placeholder")
+        }
+        return inserted
+    }
+
+    internal fun removeEntry(key: String): Entry? {
+        var removedEntry: Entry? = null
+        values.computeIfPresent(key) { _, existing ->
+            ordered.remove(existing.position)
+            removed(existing.entry, existing.position.sequence)
+            removedEntry = existing.entry
+            null
+        }
+        return removedEntry
     }
 
     fun putAll(values: Collection<Any>) {
-        synchronized(lock) { values.forEach { value -> this.put(value) } }
+        values.forEach { value -> this.put(value) }
     }
 
     fun putNamedValues(values: Collection<NamedValue>) {
-        synchronized(lock) { values.forEach { nv: NamedValue -> this.put(nv.name, nv.value) } }
+        values.forEach { nv: NamedValue -> this.put(nv.name, nv.value) }
     }
 
     operator fun <T> get(key: String): T? =
-            synchronized(lock) {
-                values[key]?.let { entry ->
-                    @Suppress("UNCHECKED_CAST")
-                    entry.value as T
-                }
-            }
+        values[key]?.let { slot ->
+            @Suppress("UNCHECKED_CAST")
+            slot.entry.value as T
+        }
 
-    fun containsKey(key: String): Boolean = synchronized(lock) { values.containsKey(key) }
+    fun containsKey(key: String): Boolean = values.containsKey(key)
 
-    fun entrySet(): Set<Entry> = synchronized(lock) { LinkedHashSet(values.values.sortedBy(Entry::timestamp)) }
+    // A snapshot in timestamp order, then insertion order for equal timestamps
+    fun entrySet(): Set<Entry> = LinkedHashSet(ordered.values)
+
+    // A live, read-only view in the same order, for readers that only need to iterate once and so need no copy
+    fun liveEntries(): Collection<Entry> = liveEntries
 
     @Suppress("UNCHECKED_CAST")
     private fun self(): M = this as M
 
-    class Entry(val key: String, val value: Any?, val timestamp: Long, val attributes: Attributes = emptyAttributes())
+    /**
+     * An entry is an [interaction] when it was captured between two parties, or a [marker] when it is a sequence
+     * diagram marker, so that neither needs to be recovered from the key or value later on.
+     */
+    class Entry(
+        val key: String,
+        val value: Any?,
+        val timestamp: Long,
+        val attributes: Attributes = emptyAttributes(),
+        val interaction: Interaction? = null,
+        val marker: Marker? = null
+    ) {
+        // The order in which the entry was put amongst all entries, where the map numbers them; 0 until it is numbered
+        @Volatile
+        internal var arrivalNumber: Long = 0
+    }
 
-    companion object {
-        private val KEY_REGEX = "(?<prefix>.*)(?<key>__(?<prekey>[ ]*)idx(?<postkey>[ ]*)__)(?<suffix>.*)".toRegex()
+    /**
+     * The parts of an interaction key: the descriptor, then the index unless it is 0, then "from <fromParty> to <toParty>".
+     */
+    class Interaction(val descriptor: String, val index: Int, val fromParty: String, val toParty: String, val group: String?, val arrowStyle: ArrowStyle) {
+        val name: String
+            get() = if (index == 0) descriptor else "$descriptor $index"
+    }
+
+    enum class Marker {
+        TimePassing,
+        Divider,
+        Summary
+    }
+
+    private data class Position(val timestamp: Long, val sequence: Long) : Comparable<Position> {
+        override fun compareTo(other: Position): Int =
+            compareValuesBy(this, other, Position::timestamp, Position::sequence)
+    }
+
+    private class Slot(val entry: Entry, val position: Position)
+
+    /**
+     * A key containing an index placeholder, e.g. "Message __ idx __ from A to B". Index 0 is the key without the
+     * placeholder, "Message from A to B", and index n keeps the spacing around the placeholder, "Message n from A to B".
+     */
+    internal data class UniqueKey(val prefix: String, val prekey: String = "", val postkey: String = "", val suffix: String = "") {
+
+        fun withIndex(index: Int): String =
+            if (index == 0) prefix + suffix else prefix + prekey + index + (if (suffix.isNotBlank()) postkey else "") + suffix
+
+        companion object {
+            private const val PLACEHOLDER = "idx"
+            private const val DELIMITER = "__"
+
+            // Finds the last "__", optional spaces, "idx", optional spaces, "__" in the key
+            fun parse(key: String): UniqueKey? {
+                var idx = key.lastIndexOf(PLACEHOLDER)
+                while (idx >= 0) {
+                    val prekeyStart = spacesBackFrom(key, idx)
+                    val postkeyEnd = spacesForwardFrom(key, idx + PLACEHOLDER.length)
+                    if (key.startsWith(DELIMITER, postkeyEnd) && prekeyStart >= DELIMITER.length && key.startsWith(DELIMITER, prekeyStart - DELIMITER.length)) {
+                        return UniqueKey(
+                            key.substring(0, prekeyStart - DELIMITER.length),
+                            key.substring(prekeyStart, idx),
+                            key.substring(idx + PLACEHOLDER.length, postkeyEnd),
+                            key.substring(postkeyEnd + DELIMITER.length)
+                        )
+                    }
+                    idx = if (idx == 0) -1 else key.lastIndexOf(PLACEHOLDER, idx - 1)
+                }
+                return null
+            }
+
+            private fun spacesBackFrom(key: String, end: Int): Int {
+                var start = end
+                while (start > 0 && key[start - 1] == ' ') start--
+                return start
+            }
+
+            private fun spacesForwardFrom(key: String, start: Int): Int {
+                var end = start
+                while (end < key.length && key[end] == ' ') end++
+                return end
+            }
+        }
     }
 }
\ No newline at end of file
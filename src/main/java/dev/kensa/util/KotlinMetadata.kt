@@ -0,0 +1,72 @@
+package dev.kensa.util
+
+import kotlinx.metadata.KmFunction
+import kotlinx.metadata.KmProperty
+import kotlinx.metadata.jvm.KotlinClassMetadata
+import kotlinx.metadata.jvm.fieldSignature
+import kotlinx.metadata.jvm.getterSignature
+import kotlinx.metadata.jvm.signature
+import java.lang.reflect.Method
+import java.util.*
+
+/**
+ * The few things Kensa needs to know about a Kotlin class, decoded straight from its [Metadata] annotation. This is far
+ * cheaper than kotlin-reflect, which builds descriptors for the whole class on first use.
+ */
+internal class KotlinMembers(
+    private val functionNames: Map<String, String>,
+    val properties: List<KotlinProperty>
+) {
+    fun functionNameFor(method: Method): String? = functionNames[method.name + method.descriptor]
+
+    data class KotlinProperty(val name: String, val getterName: String?, val fieldName: String?)
+
+    companion object {
+        private val members = object : ClassValue<Optional<KotlinMembers>>() {
+            override fun computeValue(type: Class<*>): Optional<KotlinMembers> = Optional.ofNullable(decode(type))
+        }
+
+        // Null for Java classes, and for Kotlin classes whose metadata cannot be read, e.g. from a newer compiler
+        fun of(clazz: Class<*>): KotlinMembers? = members.get(clazz).orElse(null)
+
+        private fun decode(clazz: Class<*>): KotlinMembers? =
+            clazz.getAnnotation(Metadata::class.java)?.let { metadata ->
+                try {
+                    when (val classMetadata = KotlinClassMetadata.readLenient(metadata)) {
+                        is KotlinClassMetadata.Class -> membersFrom(classMetadata.kmClass.functions, classMetadata.kmClass.properties)
+                        is KotlinClassMetadata.FileFacade -> membersFrom(classMetadata.kmPackage.functions, classMetadata.kmPackage.properties)
+                        is KotlinClassMetadata.MultiFileClassPart -> membersFrom(classMetadata.kmPackage.functions, classMetadata.kmPackage.properties)
+                        else -> KotlinMembers(emptyMap(), emptyList())
+                    }
+                } catch (e: Exception) {
+                    null
+                }
+            }
+
+        private fun membersFrom(functions: List<KmFunction>, properties: List<KmProperty>) =
+            KotlinMembers(
+                functions.mapNotNull { function -> function.signature?.let { it.toString() to function.name } }.toMap(),
+                properties.map { KotlinProperty(it.name, it.getterSignature?.name, it.fieldSignature?.name) }
+            )
+
+        private val Method.descriptor: String
+            get() = parameterTypes.joinToString("", "(", ")") { it.descriptor } + returnType.descriptor
+
+        private val Class<*>.descriptor: String
+            get() = when {
+                isArray -> "[" + componentType.descriptor
+                isPrimitive -> when (this) {
+                    Void.TYPE -> "V"
+                    Boolean::class.javaPrimitiveType -> "Z"
+                    Byte::class.javaPrimitiveType -> "B"
+                    Char::class.javaPrimitiveType -> "C"
+                    Short::class.javaPrimitiveType -> "S"
+                    Int::class.javaPrimitiveType -> "I"
+                    Long::class.javaPrimitiveType -> "J"
+                    Float::class.javaPrimitiveType -> "F"
+                    else -> "D"
+                }
+                else -> "L" + name.replace('.', '/') + ";"
+            }
+    }
+}
@@ -0,0 +1,63 @@
+package dev.kensa.util
+
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType.methodType
+import java.lang.reflect.Field
+import java.lang.reflect.Method
+import java.lang.reflect.Modifier
+import kotlin.reflect.KProperty
+import kotlin.reflect.jvm.isAccessible
+import kotlin.reflect.jvm.javaField
+import kotlin.reflect.jvm.javaGetter
+
+/**
+ * Reads a value from a target through a [MethodHandle] that is resolved once for a method, field or property, rather
+ * than through reflective access checks and argument boxing on every read. Static members ignore the target, as
+ * [Method.invoke] and [Field.get] do.
+ */
+internal class MemberReader private constructor(private val unwrapsValue: Boolean, private val reader: (Any) -> Any?) {
+
+    private constructor(handle: MethodHandle, unwrapsValue: Boolean) : this(unwrapsValue, { target -> handle.invoke(target) })
+
+    fun read(target: Any): Any? = reader(target).let { if (unwrapsValue) it?.realValue() else it }
+
+    companion object {
+        private val lookup = MethodHandles.lookup()
+        private val readerType = methodType(Any::class.java, Any::class.java)
+
+        fun of(method: Method): MemberReader = MemberReader(method.handle(), false)
+
+        fun of(field: Field, unwrapsValue: Boolean = true): MemberReader = MemberReader(field.handle(), unwrapsValue && !field.isStatic)
+
+        // Static fields are read as they are, as valueOfKotlinPropertyIn always has
+        fun of(property: KProperty<*>, unwrapsValue: Boolean = true): MemberReader {
+            val field = property.javaField
+            val getter = property.javaGetter
+
+            return when {
+                field != null && field.isStatic -> of(field, false)
+                getter != null -> MemberReader(getter.handle(), unwrapsValue)
+                field != null -> of(field, unwrapsValue)
+                // Only for properties with neither a getter nor a backing field that can be seen from Java
+                else -> property.apply { isAccessible = true }.let { MemberReader(unwrapsValue) { target -> it.getter.call(target) } }
+            }
+        }
+
+        private fun Method.handle(): MethodHandle {
+            isAccessible = true
+            return lookup.unreflect(this).let {
+                if (Modifier.isStatic(modifiers)) MethodHandles.dropArguments(it, 0, Any::class.java) else it
+            }.asType(readerType)
+        }
+
+        private fun Field.handle(): MethodHandle {
+            isAccessible = true
+            return lookup.unreflectGetter(this).let {
+                if (isStatic) MethodHandles.dropArguments(it, 0, Any::class.java) else it
+            }.asType(readerType)
+        }
+
+        private val Field.isStatic get() = Modifier.isStatic(modifiers)
+    }
+}
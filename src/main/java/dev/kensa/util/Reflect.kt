@@ -1,6 +1,5 @@
 package dev.kensa.util
 
-import dev.kensa.Scenario
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.params.ParameterizedTest
 import java.lang.reflect.AnnotatedElement
@@ -10,14 +9,22 @@ import java.lang.reflect.Modifier
 import java.util.function.Supplier
 import kotlin.reflect.KClass
 import kotlin.reflect.KProperty
-import kotlin.reflect.KProperty1
 import kotlin.reflect.full.*
 import kotlin.reflect.jvm.*
 
-val Class<*>.isKotlinClass get() = declaredAnnotations.any { it.annotationClass.qualifiedName == "kotlin.Metadata" }
+private val kotlinClasses = object : ClassValue<Boolean>() {
+    override fun computeValue(type: Class<*>) = type.isAnnotationPresent(Metadata::class.java)
+}
+
+val Class<*>.isKotlinClass: Boolean get() = kotlinClasses.get(this)
 val KClass<*>.isKotlinClass get() = java.isKotlinClass
 
-val Method.normalisedName: String get() = takeIf { declaringClass.isKotlinClass }?.kotlinFunction?.name ?: name
+// kotlin-reflect is only used for Kotlin classes whose metadata could not be decoded
+val Method.normalisedName: String
+    get() = when {
+        !declaringClass.isKotlinClass -> name
+        else -> KotlinMembers.of(declaringClass)?.let { it.functionNameFor(this) ?: name } ?: kotlinFunction?.name ?: name
+    }
 
 fun interface ReflectPredicate<T> {
     operator fun invoke(target: T): Boolean
@@ -26,73 +33,35 @@ fun interface ReflectPredicate<T> {
 }
 
 private val annotatedAsTests = ReflectPredicate<Method> { it.hasAnnotation<Test>() || it.hasAnnotation<ParameterizedTest>() }
-private val allTheMethods = ReflectPredicate<Method> { true }
-private fun notDeclaredIn(clazz: Class<*>) = ReflectPredicate<Method> { it.declaringClass != clazz }
-private fun withMethodName(name: String) = ReflectPredicate<Method> { it.name == name }
-private fun noParameters() = ReflectPredicate<Method> { it.parameters.isEmpty() }
-private fun withPropertyName(name: String): (KProperty1<out Any?, Any?>) -> Boolean = { it.name == name }
 
-private val allTheFields = ReflectPredicate<Field> { true }
-private val annotatedAsScenario = ReflectPredicate<Field> { it.hasAnnotation<Scenario>() }
-private fun withFieldName(name: String) = ReflectPredicate<Field> { it.name == name }
+private val Class<*>.reflected get() = ReflectedClass.of(this)
 
 internal val Method.actualDeclaringClass: Class<*>
-    get() = findMethods(withMethodName(name).and(notDeclaredIn(declaringClass)), declaringClass).firstOrNull()?.run {
+    get() = declaringClass.reflected.methodsNamed(name).firstOrNull { it.declaringClass != declaringClass }?.run {
         declaringClass
     } ?: declaringClass
 
 @Suppress("UNCHECKED_CAST")
-internal fun <T> Any.invokeMethod(name: String): T? {
-    findKotlinProperties(withPropertyName(name), this::class.java).firstOrNull()?.run {
-        isAccessible = true
-        return getter.call(this@invokeMethod) as T?
-    }
-
-    findMethods(withMethodName(name).and(noParameters()), this::class.java).firstOrNull()?.run {
-        isAccessible = true
-        return invoke(this@invokeMethod) as T?
-    }
-
-    throw IllegalArgumentException("No method or property [$name] found in class [${this::class}]")
-}
+internal fun <T> Any.invokeMethod(name: String): T? =
+    (this::class.java.reflected.readerNamed(name) ?: throw IllegalArgumentException("No method or property [$name] found in class [${this::class}]"))
+        .read(this) as T?
 
 @Suppress("UNCHECKED_CAST")
-internal fun <T> Any.invokeMethod(method: Method): T? = method.run {
-    isAccessible = true
-    invoke(this@invokeMethod) as T?
-}
+internal fun <T> Any.invokeMethod(method: Method): T? = method.declaringClass.reflected.readerFor(method).read(this) as T?
 
 internal fun Class<*>.findMethod(name: String) =
-    findMethods(withMethodName(name), this)
+    reflected.methodsNamed(name)
         .firstOrNull()
         ?: throw IllegalArgumentException("No method [$name] found in class [${this}]")
 
-internal fun Class<*>.findRequiredField(name: String) = findField(withFieldName(name), this) ?: throw IllegalArgumentException("Did not find field [$name] in class [$simpleName]")
+internal fun Class<*>.findRequiredField(name: String) = reflected.fieldNamed(name) ?: throw IllegalArgumentException("Did not find field [$name] in class [$simpleName]")
 
 internal fun Any.fieldValue(name: String): Any? = this::class.java.findRequiredField(name).valueOfIn(this)
 
-internal val Class<*>.allMethods get() = findMethods(allTheMethods, this)
-internal val Class<*>.allProperties: Collection<KProperty<*>> get() = kotlin.allProperties
-internal val KClass<*>.allProperties: Collection<KProperty<*>> get() = memberProperties + allStaticProperties()
-internal val Class<*>.allFields get() = findFields(allTheFields, this)
-
-private fun KClass<*>.allStaticProperties(results: MutableSet<KProperty<*>> = LinkedHashSet()): Collection<KProperty<*>> =
-    results.also { r ->
-        takeUnless { it == Any::class }?.apply {
-            r.addAll(staticProperties)
-            superclasses.forEach { sc ->
-                sc.allStaticProperties(r)
-            }
-        }
-    }
-
-private fun findFields(predicate: ReflectPredicate<Field>, clazz: Class<*>, results: MutableSet<Field> = LinkedHashSet()): Set<Field> =
-    results.also {
-        clazz.takeUnless { it == Any::class.java }?.apply {
-            it.addAll(declaredFields.filter { predicate.invoke(it) })
-            superclass?.let { sc -> findFields(predicate, sc, it) }
-        }
-    }
+internal val Class<*>.allMethods: Set<Method> get() = reflected.methods
+internal val Class<*>.allProperties: Collection<KProperty<*>> get() = reflected.properties
+internal val KClass<*>.allProperties: Collection<KProperty<*>> get() = java.allProperties
+internal val Class<*>.allFields: Set<Field> get() = reflected.fields
 
 @Suppress("UNCHECKED_CAST")
 private fun Field.valueOfIn(target: Any): Any? = run {
@@ -122,44 +91,22 @@ private fun Field.valueOfJavaFieldIn(target: Any) = run {
     get(target)?.realValue()
 }
 
-private fun Any.realValue() =
+internal fun Any.realValue() =
     when (this) {
         is Function0<*> -> this()
         is Supplier<*> -> this.get()
         else -> this
     }
 
-internal fun Class<*>.testMethods() = findMethods(annotatedAsTests, this)
+internal fun Class<*>.testMethods() = reflected.methods.filterTo(LinkedHashSet()) { annotatedAsTests(it) }
 
 internal inline fun <reified T : Annotation> KProperty<*>.findKotlinOrJavaAnnotation() = findAnnotation() ?: javaField?.findAnnotation() ?: javaGetter?.findAnnotation<T>()
 internal inline fun <reified T : Annotation> KProperty<*>.hasKotlinOrJavaAnnotation() = hasAnnotation<T>() || javaElementHasAnnotation<T>()
 internal inline fun <reified T : Annotation> KProperty<*>.javaElementHasAnnotation() = javaField?.findAnnotation<T>() != null || javaGetter?.findAnnotation<T>() != null
 internal inline fun <reified T : Annotation> AnnotatedElement.hasAnnotation() = findAnnotation<T>() != null
-internal inline fun <reified T : Annotation> AnnotatedElement.findAnnotation(): T? = annotations?.firstOrNull { it is T } as T?
-
-private fun findField(predicate: ReflectPredicate<Field>, clazz: Class<*>?): Field? =
-    clazz?.takeUnless { it == Any::class.java }?.run {
-        declaredFields.singleOrNull { predicate.invoke(it) }
-            ?: findField(predicate, clazz.superclass)
-    }
-
-private fun findKotlinProperties(
-    predicate: (KProperty1<out Any?, Any?>) -> Boolean,
-    clazz: Class<*>?,
-    results: MutableSet<KProperty1<out Any?, Any?>> = LinkedHashSet()
-): Set<KProperty1<out Any?, Any?>> =
-    results.also {
-        clazz?.takeUnless { it == Any::class.java }?.apply {
-            if (isKotlinClass) kotlin.declaredMemberProperties.filterTo(it, predicate)
-            findKotlinProperties(predicate, superclass, it)
-        }
-    }
+internal inline fun <reified T : Annotation> AnnotatedElement.findAnnotation(): T? = annotationsOf(this).firstOrNull { it is T } as T?
 
-private fun findMethods(predicate: ReflectPredicate<Method>, clazz: Class<*>?, results: MutableSet<Method> = LinkedHashSet()): Set<Method> =
-    results.also {
-        clazz?.takeUnless { it == Any::class.java }?.apply {
-            declaredMethods.filterTo(it) { predicate.invoke(it) }
-            findMethods(predicate, superclass, it)
-            interfaces.forEach { i -> findMethods(predicate, i, it) }
-        }
-    }
\ No newline at end of file
+// Class annotations come from the reflected class, as getAnnotations copies the array on every call
+@PublishedApi
+internal fun annotationsOf(element: AnnotatedElement): Collection<Annotation> =
+    if (element is Class<*>) element.reflected.annotations.values else element.annotations.asList()
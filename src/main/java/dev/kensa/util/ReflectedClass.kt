@@ -0,0 +1,115 @@
+package dev.kensa.util
+
+import java.lang.reflect.AccessibleObject
+import java.lang.reflect.Field
+import java.lang.reflect.Method
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.reflect.KProperty
+import kotlin.reflect.KProperty1
+import kotlin.reflect.full.declaredMemberProperties
+import kotlin.reflect.full.memberProperties
+import kotlin.reflect.full.staticProperties
+import kotlin.reflect.full.superclasses
+
+/**
+ * Everything the reflection helpers need to know about a class and its hierarchy, gathered once per class so that
+ * lookups do not walk the hierarchy on every call. Methods and fields keep the order in which the hierarchy was walked:
+ * methods from the class, then its superclasses, then its interfaces; fields from the class, then its superclasses.
+ */
+internal class ReflectedClass private constructor(clazz: Class<*>) {
+
+    val methods: Set<Method> = collectMethods(clazz)
+    val fields: Set<Field> = collectFields(clazz)
+
+    private val methodsByName: Map<String, List<Method>> = methods.groupBy { it.name }
+
+    // Field names are unique within a class, so the first field with a name is the one declared nearest the class
+    private val fieldsByName: Map<String, Field> = LinkedHashMap<String, Field>().apply { fields.forEach { putIfAbsent(it.name, it) } }
+
+    val annotations: Map<Class<out Annotation>, Annotation> = clazz.annotations.associateBy { it.annotationClass.java }
+
+    val kotlinPropertyMembers: Map<String, AccessibleObject> = collectKotlinPropertyMembers(clazz)
+
+    val properties: Collection<KProperty<*>> by lazy { clazz.kotlin.run { memberProperties + allStaticProperties() } }
+
+    // Only needed for Kotlin classes whose metadata could not be decoded
+    val undecodedKotlinProperties: Set<KProperty1<out Any?, Any?>> by lazy { collectUndecodedKotlinProperties(clazz) }
+
+    private val readersByName: MutableMap<String, MemberReader> = ConcurrentHashMap()
+    private val readersByMethod: MutableMap<Method, MemberReader> = ConcurrentHashMap()
+
+    fun methodsNamed(name: String): List<Method> = methodsByName[name] ?: emptyList()
+
+    // A Kotlin property takes precedence over a method with the same name. Names that resolve to nothing are not kept.
+    fun readerNamed(name: String): MemberReader? =
+        readersByName[name] ?: resolveReaderNamed(name)?.also { readersByName[name] = it }
+
+    fun readerFor(method: Method): MemberReader = readersByMethod.computeIfAbsent(method) { MemberReader.of(it) }
+
+    private fun resolveReaderNamed(name: String): MemberReader? =
+        when (val member = kotlinPropertyMembers[name]) {
+            is Method -> MemberReader.of(member)
+            is Field -> MemberReader.of(member, false)
+            else -> undecodedKotlinProperties.firstOrNull { it.name == name }?.let { MemberReader.of(it, false) }
+                ?: methodsNamed(name).firstOrNull { it.parameterCount == 0 }?.let { MemberReader.of(it) }
+        }
+
+    fun fieldNamed(name: String): Field? = fieldsByName[name]
+
+    companion object {
+        private val reflectedClasses = object : ClassValue<ReflectedClass>() {
+            override fun computeValue(type: Class<*>) = ReflectedClass(type)
+        }
+
+        fun of(clazz: Class<*>): ReflectedClass = reflectedClasses.get(clazz)
+
+        private fun collectMethods(clazz: Class<*>?, results: MutableSet<Method> = LinkedHashSet()): Set<Method> =
+            results.also {
+                clazz?.takeUnless { it == Any::class.java }?.apply {
+                    it.addAll(declaredMethods)
+                    collectMethods(superclass, it)
+                    interfaces.forEach { i -> collectMethods(i, it) }
+                }
+            }
+
+        private fun collectFields(clazz: Class<*>?, results: MutableSet<Field> = LinkedHashSet()): Set<Field> =
+            results.also {
+                clazz?.takeUnless { it == Any::class.java }?.apply {
+                    it.addAll(declaredFields)
+                    collectFields(superclass, it)
+                }
+            }
+
+        // The getter, or the backing field where a property has no getter, of the first property with each name in
+        // the class hierarchy, using only the decoded metadata of each class
+        private fun collectKotlinPropertyMembers(clazz: Class<*>): Map<String, AccessibleObject> =
+            HashMap<String, AccessibleObject>().apply {
+                generateSequence(clazz) { it.superclass }.takeWhile { it != Any::class.java }.forEach { c ->
+                    KotlinMembers.of(c)?.properties?.forEach { property ->
+                        if (!containsKey(property.name)) {
+                            (property.getterName?.let { getterName -> c.declaredMethods.firstOrNull { it.name == getterName && it.parameterCount == 0 } }
+                                ?: property.fieldName?.let { fieldName -> c.declaredFields.firstOrNull { it.name == fieldName } })
+                                ?.let { put(property.name, it) }
+                        }
+                    }
+                }
+            }
+
+        private fun collectUndecodedKotlinProperties(clazz: Class<*>): Set<KProperty1<out Any?, Any?>> =
+            LinkedHashSet<KProperty1<out Any?, Any?>>().apply {
+                generateSequence(clazz) { it.superclass }.takeWhile { it != Any::class.java }.forEach { c ->
+                    if (c.isKotlinClass && KotlinMembers.of(c) == null) addAll(c.kotlin.declaredMemberProperties)
+                }
+            }
+
+        private fun kotlin.reflect.KClass<*>.allStaticProperties(results: MutableSet<KProperty<*>> = LinkedHashSet()): Collection<KProperty<*>> =
+            results.also { r ->
+                takeUnless { it == Any::class }?.apply {
+                    r.addAll(staticProperties)
+                    superclasses.forEach { sc ->
+                        sc.allStaticProperties(r)
+                    }
+                }
+            }
+    }
+}
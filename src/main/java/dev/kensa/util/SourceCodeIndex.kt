@@ -1,23 +1,52 @@
 package dev.kensa.util
 
+import dev.kensa.Kensa
 import dev.kensa.KensaException
 import java.io.IOException
 import java.nio.file.*
 import java.nio.file.FileVisitResult.CONTINUE
+import java.nio.file.FileVisitResult.SKIP_SUBTREE
 import java.nio.file.attribute.BasicFileAttributes
+import java.util.concurrent.ConcurrentHashMap
 
 object SourceCodeIndex {
     private val workingDirectory = Path.of(System.getProperty("user.dir"))
+    private val located: MutableMap<String, Path> = ConcurrentHashMap()
+
+    @Volatile
+    private var sourceTree: SourceTree? = null
 
     private val Class<*>.sourceExtension get() = if (isKotlinClass) "kt" else "java"
 
     fun locate(clazz: Class<*>): Path =
         clazz.name.substringBefore("$").let { name ->
-            Walker(name, clazz.sourceExtension).run {
-                Files.walkFileTree(workingDirectory, this)
-                result ?: throw KensaException("Could not locate source file for [$name]")
+            val sourceExtension = clazz.sourceExtension
+            val sourceTree = currentSourceTree()
+
+            located.computeIfAbsent("$name.$sourceExtension") {
+                sourceTree.find(name, sourceExtension) ?: walkFor(name, sourceExtension)
+            }
+        }
+
+    // The index is built once for the whole process, but is rebuilt if the configured roots or exclusions change
+    private fun currentSourceTree(): SourceTree {
+        val roots = Kensa.configuration.sourceRoots.ifEmpty { listOf(workingDirectory) }
+        val excluded = Kensa.configuration.excludedSourceDirectories
+
+        return sourceTree?.takeIf { it.isIndexOf(roots, excluded) } ?: synchronized(this) {
+            sourceTree?.takeIf { it.isIndexOf(roots, excluded) } ?: SourceTree.index(roots, excluded).also {
+                sourceTree = it
+                located.clear()
             }
         }
+    }
+
+    // Fallback for anything the index could not see, e.g. sources in excluded directories or created after indexing
+    private fun walkFor(name: String, sourceExtension: String): Path =
+        Walker(name, sourceExtension).run {
+            Files.walkFileTree(workingDirectory, this)
+            result ?: throw KensaException("Could not locate source file for [$name]")
+        }
 
     private class Walker(name: String, sourceExtension: String) : FileVisitor<Path?> {
         private val pathMatcher: PathMatcher = FileSystems.getDefault().getPathMatcher("glob:**/${name.replace("\\.".toRegex(), "/")}.$sourceExtension")
@@ -31,4 +60,37 @@ object SourceCodeIndex {
 
         override fun postVisitDirectory(dir: Path?, exc: IOException?) = CONTINUE
     }
-}
\ No newline at end of file
+}
+
+internal class SourceTree private constructor(private val roots: List<Path>, private val excluded: Set<String>, private val filesByName: Map<String, List<Path>>) {
+
+    fun isIndexOf(roots: List<Path>, excluded: Set<String>) = this.roots == roots && this.excluded == excluded
+
+    fun find(name: String, sourceExtension: String): Path? =
+        filesByName["${name.substringAfterLast('.')}.$sourceExtension"]?.let { candidates ->
+            "${name.replace('.', '/')}.$sourceExtension".let { relativePath ->
+                candidates.firstOrNull { it.endsWith(relativePath) }
+            }
+        }
+
+    companion object {
+        private val sourceExtensions = setOf("kt", "java")
+
+        fun index(roots: List<Path>, excluded: Set<String>): SourceTree =
+            SourceTree(roots, excluded, HashMap<String, MutableList<Path>>().apply {
+                val indexer = Indexer(roots, excluded) { file -> getOrPut(file.fileName.toString()) { ArrayList(1) }.add(file) }
+                roots.filter { Files.isDirectory(it) }.forEach { Files.walkFileTree(it, indexer) }
+            })
+    }
+
+    private class Indexer(private val roots: List<Path>, private val excluded: Set<String>, private val onSourceFile: (Path) -> Unit) : SimpleFileVisitor<Path>() {
+        override fun preVisitDirectory(dir: Path, attrs: BasicFileAttributes) =
+            if (dir !in roots && dir.fileName?.toString() in excluded) SKIP_SUBTREE else CONTINUE
+
+        override fun visitFile(file: Path, attrs: BasicFileAttributes) = CONTINUE.apply {
+            if (file.fileName.toString().substringAfterLast('.') in sourceExtensions) onSourceFile(file)
+        }
+
+        override fun visitFileFailed(file: Path?, exc: IOException?) = CONTINUE
+    }
+}
@@ -0,0 +1,116 @@
+package dev.kensa
+
+import dev.kensa.state.CapturedInteractions
+import dev.kensa.util.KensaMap
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
+import java.lang.ref.WeakReference
+
+internal class IncrementalStateExtractorTest {
+
+    private val extractor = MessageCounter()
+
+    @Test
+    internal fun `is only given the entries put since it was last executed`() {
+        val interactions = CapturedInteractions()
+
+        interactions.put("Message 1", "A")
+        interactions.put("Message 2", "B")
+        extractor.execute(interactions) shouldBe 2
+
+        interactions.put("Message 3", "C")
+        extractor.execute(interactions) shouldBe 3
+        extractor.execute(interactions) shouldBe 3
+
+        extractor.accumulated shouldContainExactly listOf("Message 1", "Message 2", "Message 3")
+    }
+
+    @Test
+    internal fun `is given an entry again when it is put again`() {
+        val interactions = CapturedInteractions()
+
+        interactions.put("Message 1", "A")
+        extractor.execute(interactions)
+        interactions.put("Message 1", "B")
+        extractor.execute(interactions)
+
+        extractor.accumulated shouldContainExactly listOf("Message 1", "Message 1")
+    }
+
+    @Test
+    internal fun `is not given an entry replaced before it was executed`() {
+        val interactions = CapturedInteractions()
+
+        extractor.execute(interactions)
+        interactions.put("Message 1", "A")
+        interactions.put("Message 1", "B")
+        extractor.execute(interactions)
+
+        extractor.accumulated shouldContainExactly listOf("Message 1")
+    }
+
+    @Test
+    internal fun `starts again when executed against earlier interactions again`() {
+        val interactions = CapturedInteractions()
+        extractor.execute(interactions)
+        val unread = CapturedInteractions().apply { put("Message 1", "A") }
+
+        extractor.execute(unread)
+        unread.put("Message 2", "B")
+        extractor.execute(unread) shouldBe 2
+
+        interactions.put("Message 3", "C")
+        extractor.execute(interactions) shouldBe 1
+    }
+
+    @Test
+    internal fun `keeps nothing from entries put after it was executed`() {
+        val (interactions, payload) = interactionsPutAfterExecuting()
+
+        isCollected(payload).shouldBeTrue()
+        isCollected(interactions).shouldBeTrue()
+    }
+
+    // Creates everything in its own frame, so that the test holds nothing but weak references
+    private fun interactionsPutAfterExecuting(): Pair<WeakReference<CapturedInteractions>, WeakReference<Any>> {
+        val interactions = CapturedInteractions()
+        extractor.execute(interactions)
+        val payload = Any()
+        interactions.put("Message 1", payload)
+
+        return Pair(WeakReference(interactions), WeakReference(payload))
+    }
+
+    private fun isCollected(reference: WeakReference<*>): Boolean {
+        repeat(20) {
+            System.gc()
+            if (reference.get() == null) return true
+            Thread.sleep(50)
+        }
+        return false
+    }
+
+    @Test
+    internal fun `starts again when executed against different interactions`() {
+        extractor.execute(CapturedInteractions().apply { put("Message 1", "A") }) shouldBe 1
+        extractor.execute(CapturedInteractions().apply { put("Message 2", "B") }) shouldBe 1
+
+        extractor.accumulated shouldContainExactly listOf("Message 2")
+    }
+
+    private class MessageCounter : IncrementalStateExtractor<Int>() {
+        val accumulated = ArrayList<String>()
+
+        override fun reset() {
+            accumulated.clear()
+        }
+
+        override fun accumulate(entry: KensaMap.Entry) {
+            accumulated.add(entry.key)
+        }
+
+        override fun result(): Int = accumulated.size
+    }
+}
@@ -0,0 +1,40 @@
+package dev.kensa
+
+import dev.kensa.context.TestContainer
+import dev.kensa.output.ResultWriter
+import dev.kensa.output.TestWriter
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
+import org.mockito.kotlin.argumentCaptor
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.verify
+
+internal class KensaExecutionContextTest {
+
+    @Test
+    internal fun `writes the index even when a container could not be written`() {
+        val resultWriter = mock<ResultWriter>()
+        val context = KensaExecutionContext(resultWriter, 1)
+        val testWriter = context.testWriterFor(testWriter { container ->
+            if (container.testClass == String::class.java) throw IllegalStateException("Boom")
+        })
+        val containers = listOf(containerFor(String::class.java, testWriter), containerFor(Int::class.java, testWriter))
+        containers.forEach { context.register(it) }
+        containers.forEach { it.close() }
+
+        shouldThrow<KensaException> { context.close() }.cause?.message shouldBe "Boom"
+
+        argumentCaptor<Set<TestContainer>>().apply {
+            verify(resultWriter).write(capture())
+            firstValue.map { it.testClass } shouldBe listOf(Int::class.java, String::class.java)
+        }
+    }
+
+    private fun testWriter(write: (TestContainer) -> Unit) = object : TestWriter {
+        override fun write(container: TestContainer) = write(container)
+    }
+
+    private fun containerFor(testClass: Class<*>, testWriter: TestWriter) =
+        TestContainer(testClass, testClass.simpleName, emptyMap(), null, emptyList(), testWriter)
+}
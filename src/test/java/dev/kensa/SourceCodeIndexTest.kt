@@ -1,8 +1,14 @@
 package dev.kensa
 
 import dev.kensa.util.SourceCodeIndex.locate
+import dev.kensa.util.SourceTree
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
 import io.kotest.matchers.string.shouldEndWith
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Files
+import java.nio.file.Path
 import kotlin.io.path.absolutePathString
 
 internal class SourceCodeIndexTest {
@@ -11,5 +17,42 @@ internal class SourceCodeIndexTest {
         locate(InnerClass::class.java).absolutePathString() shouldEndWith "/src/test/java/dev/kensa/SourceCodeIndexTest.kt"
     }
 
+    @Test
+    fun sourceTreeLocatesByFullyQualifiedName(@TempDir root: Path) {
+        val expected = root.createSource("src/test/kotlin/dev/kensa/Foo.kt")
+        root.createSource("src/test/kotlin/dev/other/Foo.kt")
+        root.createSource("src/test/java/dev/kensa/Foo.java")
+
+        SourceTree.index(listOf(root), emptySet()).find("dev.kensa.Foo", "kt") shouldBe expected
+    }
+
+    @Test
+    fun sourceTreeDoesNotIndexExcludedDirectories(@TempDir root: Path) {
+        root.createSource("build/generated/dev/kensa/Foo.kt")
+        root.createSource("node_modules/dev/kensa/Bar.kt")
+
+        with(SourceTree.index(listOf(root), setOf("build", "node_modules"))) {
+            find("dev.kensa.Foo", "kt").shouldBeNull()
+            find("dev.kensa.Bar", "kt").shouldBeNull()
+        }
+    }
+
+    @Test
+    fun sourceTreeIndexesOnlySpecifiedRoots(@TempDir root: Path) {
+        val expected = root.createSource("module1/src/test/kotlin/dev/kensa/Foo.kt")
+        root.createSource("module2/src/test/kotlin/dev/kensa/Bar.kt")
+
+        with(SourceTree.index(listOf(root.resolve("module1/src/test/kotlin")), emptySet())) {
+            find("dev.kensa.Foo", "kt") shouldBe expected
+            find("dev.kensa.Bar", "kt").shouldBeNull()
+        }
+    }
+
+    private fun Path.createSource(relativePath: String): Path =
+        resolve(relativePath).also {
+            Files.createDirectories(it.parent)
+            Files.createFile(it)
+        }
+
     internal class InnerClass
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package dev.kensa.context
 import dev.kensa.StateExtractor
 import dev.kensa.context.KotestThen.thenEventually
 import dev.kensa.state.CapturedInteractions
+import dev.kensa.state.Givens
 import io.kotest.assertions.AssertionFailedError
 import io.kotest.assertions.nondeterministic.EventuallyConfiguration
 import io.kotest.assertions.nondeterministic.EventuallyConfigurationBuilder
@@ -11,17 +12,25 @@ import io.kotest.assertions.nondeterministic.eventuallyConfig
 import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.matchers.be
 import io.kotest.matchers.collections.shouldStartWith
+import io.kotest.matchers.ints.shouldBeInRange
+import io.kotest.matchers.longs.shouldBeLessThan
 import io.kotest.matchers.shouldBe
 import io.kotest.matchers.throwable.shouldHaveMessage
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.currentCoroutineContext
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.currentTime
 import kotlinx.coroutines.test.runTest
 import org.junit.jupiter.api.Test
 import org.mockito.kotlin.*
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.concurrent.thread
 import kotlin.time.Duration.Companion.seconds
+import kotlin.time.TimeSource
 
 @OptIn(ExperimentalCoroutinesApi::class)
 class KotestThenTest {
@@ -64,4 +73,43 @@ class KotestThenTest {
         // so need to only check the first segment of the actualTimes
         actualTimes shouldStartWith expectedTimes
     }
-}
\ No newline at end of file
+
+    @Test
+    fun `thenEventually re-evaluates when an interaction is captured`() = runBlocking {
+        val interactions = CapturedInteractions()
+        val evaluations = AtomicInteger()
+        val context = TestContext(Givens(), interactions)
+        val firstEvaluation = CountDownLatch(1)
+
+        thread {
+            firstEvaluation.await()
+            Thread.sleep(20)
+            interactions.put("answer", "result")
+        }
+
+        thenEventually(5.seconds, context, { evaluations.incrementAndGet(); firstEvaluation.countDown(); it.get<String>("answer") }) {
+            this shouldBe "result"
+        }
+
+        // Once before the capture, once after it, and perhaps once more if the recheck interval passed in between
+        evaluations.get() shouldBeInRange 2..3
+    }
+
+    @Test
+    fun `thenEventually re-evaluates extractors reading state from elsewhere without a capture`() = runBlocking<Unit> {
+        val context = TestContext(Givens(), CapturedInteractions())
+        val externalState = AtomicReference("pending")
+        val start = TimeSource.Monotonic.markNow()
+
+        thread {
+            Thread.sleep(20)
+            externalState.set("result")
+        }
+
+        thenEventually(10.seconds, context, { externalState.get() }) {
+            this shouldBe "result"
+        }
+
+        start.elapsedNow().inWholeMilliseconds shouldBeLessThan 5_000
+    }
+}
@@ -0,0 +1,67 @@
+package dev.kensa.output
+
+import dev.kensa.KensaException
+import dev.kensa.context.TestContainer
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.collections.shouldNotContain
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
+import java.util.Collections.synchronizedList
+import java.util.concurrent.CountDownLatch
+
+internal class AsyncTestWriterTest {
+
+    @Test
+    internal fun `writes containers in background and waits for them on completion`() {
+        val release = CountDownLatch(1)
+        val written = synchronizedList(ArrayList<Class<*>>())
+        val writerThreads = synchronizedList(ArrayList<Thread>())
+        val asyncWriter = AsyncTestWriter(threads = 2)
+        val writer = asyncWriter.writingTo(testWriter { container ->
+            release.await()
+            writerThreads += Thread.currentThread()
+            written += container.testClass
+        })
+
+        writer.write(containerFor(String::class.java))
+        writer.write(containerFor(Int::class.java))
+        written.size shouldBe 0
+
+        release.countDown()
+        asyncWriter.awaitCompletion()
+
+        written.shouldContainExactlyInAnyOrder(String::class.java, Int::class.java)
+        writerThreads shouldNotContain Thread.currentThread()
+    }
+
+    @Test
+    internal fun `reports containers that could not be written`() {
+        val asyncWriter = AsyncTestWriter(threads = 1)
+
+        asyncWriter.writingTo(testWriter { throw IllegalStateException("Boom") }).write(containerFor(String::class.java))
+
+        shouldThrow<KensaException> { asyncWriter.awaitCompletion() }.cause?.message shouldBe "Boom"
+    }
+
+    @Test
+    internal fun `writes each container with the writer it was given`() {
+        val asyncWriter = AsyncTestWriter(threads = 2)
+        val firstWritten = synchronizedList(ArrayList<Class<*>>())
+        val secondWritten = synchronizedList(ArrayList<Class<*>>())
+
+        asyncWriter.writingTo(testWriter { firstWritten += it.testClass }).write(containerFor(String::class.java))
+        asyncWriter.writingTo(testWriter { secondWritten += it.testClass }).write(containerFor(Int::class.java))
+        asyncWriter.awaitCompletion()
+
+        firstWritten.shouldContainExactly(String::class.java)
+        secondWritten.shouldContainExactly(Int::class.java)
+    }
+
+    private fun testWriter(write: (TestContainer) -> Unit) = object : TestWriter {
+        override fun write(container: TestContainer) = write(container)
+    }
+
+    private fun containerFor(testClass: Class<*>) = TestContainer(testClass, testClass.simpleName, emptyMap(), null, emptyList(), testWriter {})
+}
@@ -0,0 +1,42 @@
+package dev.kensa.output.json
+
+import com.eclipsesource.json.Json
+import com.eclipsesource.json.WriterConfig
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
+import java.io.StringWriter
+import com.eclipsesource.json.Json.`object` as jsonObject
+
+internal class JsonStreamWriterTest {
+
+    @Test
+    internal fun `writes same json as equivalent minimal-json tree`() {
+        val expected = jsonObject()
+            .add("name", "a \"quoted\"\n value")
+            .add("nothing", null as String?)
+            .add("empty", Json.array())
+            .add("values", Json.array().add(1).add(jsonObject().add("nested", true)).add(jsonObject()))
+            .add("last", jsonObject().add("array", Json.array().add("x").add("y")))
+
+        val actual = StringWriter().also { writer ->
+            JsonStreamWriter(writer).writeObject {
+                member("name", "a \"quoted\"\n value")
+                member("nothing", null as String?)
+                arrayMember("empty") {}
+                arrayMember("values") {
+                    element(Json.value(1))
+                    objectElement { member("nested", Json.TRUE) }
+                    objectElement {}
+                }
+                objectMember("last") {
+                    arrayMember("array") {
+                        element(Json.value("x"))
+                        element(Json.value("y"))
+                    }
+                }
+            }
+        }.toString()
+
+        actual shouldBe StringWriter().also { expected.writeTo(it, WriterConfig.MINIMAL) }.toString()
+    }
+}
@@ -0,0 +1,75 @@
+package dev.kensa.parse
+
+import dev.kensa.parse.Accessor.ValueAccessor.MethodAccessor
+import dev.kensa.parse.Accessor.ValueAccessor.PropertyAccessor
+import dev.kensa.render.Renderers
+import dev.kensa.render.ValueRenderer
+import dev.kensa.util.NamedValue
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
+
+internal class InvocationValuesTest {
+
+    private var renderCount = 0
+
+    private val renderers = Renderers().apply {
+        addValueRenderer(Counter::class, ValueRenderer { counter -> renderCount++; "Count ${counter.count}" })
+    }
+
+    @Test
+    internal fun `evaluates and renders each value once per invocation`() {
+        val target = TestInstance()
+        val values = InvocationValues(target, emptyArray(), renderers, emptyMap())
+        val accessor = MethodAccessor(TestInstance::class.java.getDeclaredMethod("nextCounter"))
+
+        values.renderedValueOf(accessor) shouldBe "Count 1"
+        values.renderedValueOf(accessor) shouldBe "Count 1"
+        values.rawValueOf(accessor) shouldBe Counter(1)
+
+        target.invocations shouldBe 1
+        renderCount shouldBe 1
+    }
+
+    @Test
+    internal fun `each invocation has its own values`() {
+        val target = TestInstance()
+        val accessor = MethodAccessor(TestInstance::class.java.getDeclaredMethod("nextCounter"))
+
+        InvocationValues(target, emptyArray(), renderers, emptyMap()).renderedValueOf(accessor) shouldBe "Count 1"
+        InvocationValues(target, emptyArray(), renderers, emptyMap()).renderedValueOf(accessor) shouldBe "Count 2"
+    }
+
+    @Test
+    internal fun `highlighted values are looked up by rendered value`() {
+        val values = InvocationValues(TestInstance(), emptyArray(), renderers, emptyMap())
+        values.renderedValueOf(PropertyAccessor(TestInstance::name)) shouldBe "A Name"
+
+        values.highlight(listOf(NamedValue("name", "A Name")))
+
+        values.isHighlighted("A Name").shouldBeTrue()
+        values.isHighlighted("Another Name").shouldBeFalse()
+    }
+
+    @Test
+    internal fun `highlighted method that throws is rendered as null while sentence tokens report the exception`() {
+        val values = InvocationValues(TestInstance(), emptyArray(), renderers, emptyMap())
+        val accessor = MethodAccessor(TestInstance::class.java.getDeclaredMethod("failing"))
+
+        values.renderedHighlightValueOf(accessor) shouldBe renderers.renderValue(null)
+        shouldThrow<IllegalStateException> { values.renderedValueOf(accessor) }
+    }
+
+    data class Counter(val count: Int)
+
+    class TestInstance {
+        val name = "A Name"
+        var invocations = 0
+
+        fun nextCounter() = Counter(++invocations)
+
+        fun failing(): String = throw IllegalStateException("Boom")
+    }
+}
@@ -0,0 +1,90 @@
+package dev.kensa.parse
+
+import dev.kensa.Colour.BackgroundDanger
+import dev.kensa.Colour.TextLight
+import dev.kensa.TextStyle.TextWeightBold
+import dev.kensa.sentence.Sentence
+import dev.kensa.sentence.SentenceToken
+import dev.kensa.sentence.TokenType.*
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Files
+import java.nio.file.Path
+
+internal class PersistentParseCacheTest {
+
+    @Test
+    internal fun `round trips parsed sentences`(@TempDir dir: Path) {
+        val cache = PersistentParseCache(dir)
+        val nested = SentenceToken("nested", setOf(Word))
+        val expected = ParsedSentences(
+            listOf("first", "second"),
+            listOf(
+                Sentence(
+                    listOf(
+                        SentenceToken("given", setOf(Keyword)),
+                        SentenceToken("thing", setOf(Word, Expandable), listOf(listOf(nested), emptyList())),
+                        SentenceToken("shout", setOf(Word), emphasis = EmphasisDescriptor(setOf(TextWeightBold), TextLight, BackgroundDanger))
+                    )
+                )
+            ),
+            mapOf("thing" to listOf(Sentence(listOf(nested))))
+        )
+
+        cache.store("key", expected)
+
+        with(cache.load("key")) {
+            shouldNotBeNull()
+            parameterNames shouldBe expected.parameterNames
+            sentences.map { it.tokens } shouldBe expected.sentences.map { it.tokens }
+            nestedSentences.mapValues { (_, sentences) -> sentences.map { it.tokens } } shouldBe expected.nestedSentences.mapValues { (_, sentences) -> sentences.map { it.tokens } }
+        }
+    }
+
+    @Test
+    internal fun `treats missing or unreadable entries as a miss`(@TempDir dir: Path) {
+        val cache = PersistentParseCache(dir)
+        Files.writeString(dir.resolve("corrupt.json"), "{ not json")
+
+        cache.load("missing").shouldBeNull()
+        cache.load("corrupt").shouldBeNull()
+    }
+
+    @Test
+    internal fun `key changes with source content and other parts`(@TempDir dir: Path) {
+        val source = dir.resolve("Source.kt").also { Files.writeString(it, "class Source") }
+        val key = PersistentParseCache.keyFor(source, "dictionary")
+
+        PersistentParseCache.keyFor(source, "dictionary") shouldBe key
+        PersistentParseCache.keyFor(source, "otherDictionary") shouldNotBe key
+
+        Files.writeString(source, "class Source {}")
+        PersistentParseCache.keyFor(source, "dictionary") shouldNotBe key
+    }
+
+    @Test
+    internal fun `unversioned code is identified by its content`(@TempDir dir: Path) {
+        val classes = dir.resolve("classes").also { Files.createDirectories(it.resolve("dev/kensa")) }
+        val classFile = classes.resolve("dev/kensa/Kensa.class").also { Files.writeString(it, "version 1") }
+        val version = PersistentParseCache.digestOfCode(classes)
+
+        PersistentParseCache.digestOfCode(classes) shouldBe version
+        Files.writeString(classFile, "version 2")
+        PersistentParseCache.digestOfCode(classes) shouldNotBe version
+
+        val jar = dir.resolve("kensa.jar").also { Files.writeString(it, "jar 1") }
+        val jarVersion = PersistentParseCache.digestOfCode(jar).shouldNotBeNull()
+        Files.writeString(jar, "jar 2")
+        PersistentParseCache.digestOfCode(jar) shouldNotBe jarVersion
+    }
+
+    @Test
+    internal fun `snapshot builds are not identified by their version`() {
+        PersistentParseCache.versionOf(PersistentParseCache::class.java) shouldNotBe "SNAPSHOT"
+        PersistentParseCache.versionOf(PersistentParseCache::class.java) shouldBe PersistentParseCache.versionOf(PersistentParseCache::class.java)
+    }
+}
@@ -1,8 +1,16 @@
 package dev.kensa.parse.java
 
+import dev.kensa.Kensa
 import dev.kensa.kotest.asClue
 import dev.kensa.kotest.shouldBe
 import dev.kensa.parse.Accessor.ValueAccessor.*
+import dev.kensa.parse.MethodDeclarationContext
+import dev.kensa.parse.MethodParser
+import dev.kensa.parse.ParsedClass
+import dev.kensa.parse.ParserCache
+import dev.kensa.parse.ParserDelegate
+import dev.kensa.parse.ParserStateMachine
+import dev.kensa.parse.RealParserCache
 import dev.kensa.parse.assertMethodDescriptors
 import dev.kensa.parse.assertPropertyDescriptors
 import dev.kensa.parse.propertyNamed
@@ -21,12 +29,172 @@ import io.kotest.matchers.maps.shouldBeEmpty
 import io.kotest.matchers.maps.shouldContainKey
 import io.kotest.matchers.nulls.shouldNotBeNull
 import io.kotest.matchers.shouldBe
+import org.antlr.v4.runtime.tree.ParseTree
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.lang.ref.WeakReference
+import java.nio.file.Path
+import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
 
 internal class JavaMethodParserTest {
 
     private val parser = JavaMethodParser()
 
+    @Test
+    internal fun `parses each class only once when cache is shared between parsers and threads`() {
+        val parseCount = AtomicInteger()
+        val countingDelegate = object : ParserDelegate by JavaParserDelegate {
+            override fun findMethodDeclarationsIn(testClass: Class<out Any>) =
+                JavaParserDelegate.findMethodDeclarationsIn(testClass).also { parseCount.incrementAndGet() }
+        }
+        val cache = RealParserCache()
+        val parsers = (1..4).map {
+            object : MethodParser, ParserCache by cache, ParserDelegate by countingDelegate {
+                override val toSimpleTypeName: (Class<*>) -> String = { it.simpleName }
+            }
+        }
+        val method = dev.kensa.example.JavaTestFromInterface::class.java.findMethod("interfaceTestMethod")
+        val executor = Executors.newFixedThreadPool(parsers.size)
+
+        try {
+            val parsedMethods = parsers.map { p -> executor.submit(Callable { p.parse(method) }) }.map { it.get() }
+
+            parsedMethods.distinct().shouldHaveSize(1)
+            parseCount.get() shouldBe 1
+        } finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    internal fun `does not parse source again when sentences were persisted by an earlier run`(@TempDir cacheDir: Path) {
+        val parseCount = AtomicInteger()
+        val countingDelegate = object : ParserDelegate by JavaParserDelegate {
+            override fun findMethodDeclarationsIn(testClass: Class<out Any>) =
+                JavaParserDelegate.findMethodDeclarationsIn(testClass).also { parseCount.incrementAndGet() }
+        }
+        // Each parser has its own cache, as each run would
+        fun newParser() = object : MethodParser, ParserCache by RealParserCache(), ParserDelegate by countingDelegate {
+            override val toSimpleTypeName: (Class<*>) -> String = { it.simpleName }
+        }
+        val testClass = dev.kensa.example.JavaTestWithVariousParameterCombinations::class.java
+        val originalCacheDir = Kensa.configuration.parseCacheDir
+
+        try {
+            Kensa.withParseCacheDir(cacheDir)
+            val firstRun = newParser()
+            val parsed = firstRun.parse(testClass.findMethod("similarNameTest"))
+            firstRun.parse(testClass.findMethod("similarNameTest1"))
+            parseCount.get() shouldBe 1
+            firstRun.sourceDigestCache.size shouldBe 1
+
+            newParser().parse(testClass.findMethod("similarNameTest")).sentences.map { it.tokens } shouldBe parsed.sentences.map { it.tokens }
+            parseCount.get() shouldBe 1
+        } finally {
+            Kensa.configuration.parseCacheDir = originalCacheDir
+        }
+    }
+
+    @Test
+    internal fun `parses nested sentences once for all test methods of a class`() {
+        val parsedDeclarations = Collections.synchronizedList(ArrayList<String>())
+        val recordingDelegate = object : ParserDelegate by JavaParserDelegate {
+            override fun parse(stateMachine: ParserStateMachine, dc: MethodDeclarationContext) =
+                JavaParserDelegate.parse(stateMachine, dc).also { parsedDeclarations += dc.name }
+        }
+        val recordingParser = object : MethodParser, ParserCache by RealParserCache(), ParserDelegate by recordingDelegate {
+            override val toSimpleTypeName: (Class<*>) -> String = { it.simpleName }
+        }
+        val testClass = dev.kensa.example.JavaTestWithVariousParameterCombinations::class.java
+        val testMethodNames = listOf("similarNameTest", "similarNameTest1", "testWithNoParameters", "parameterizedTest")
+        val nestedSentenceNames = JavaParserDelegate.findMethodDeclarationsIn(testClass).second.map { it.name }
+
+        testMethodNames.forEach { recordingParser.parse(testClass.findMethod(it)) }
+
+        parsedDeclarations.sorted() shouldBe (testMethodNames + nestedSentenceNames).sorted()
+    }
+
+    @Test
+    internal fun `releases parse trees once every test method in the class has been parsed`() {
+        val parseTree = AtomicReference<WeakReference<ParseTree>>()
+        val recordingParser = parserRecordingParseTreeIn(parseTree)
+        val testClass = dev.kensa.example.JavaTestWithVariousParameterCombinations::class.java
+        val testMethodNames = JavaParserDelegate.findMethodDeclarationsIn(testClass).first.map { it.name }
+
+        testMethodNames.dropLast(1).forEach { recordingParser.parse(testClass.findMethod(it)) }
+        isCollected(parseTree.get()) shouldBe false
+
+        recordingParser.parse(testClass.findMethod(testMethodNames.last()))
+        isCollected(parseTree.get()) shouldBe true
+    }
+
+    @Test
+    internal fun `parses source again for test methods parsed after parse trees are released`() {
+        val parseTree = AtomicReference<WeakReference<ParseTree>>()
+        val recordingParser = parserRecordingParseTreeIn(parseTree)
+        val testClass = dev.kensa.example.JavaTestWithVariousParameterCombinations::class.java
+
+        recordingParser.parse(testClass.findMethod("similarNameTest"))
+        recordingParser.releaseParseTrees(testClass)
+        isCollected(parseTree.get()) shouldBe true
+
+        recordingParser.parse(testClass.findMethod("similarNameTest1")).sentences shouldHaveSize 1
+    }
+
+    @Test
+    internal fun `releases parse trees of inherited methods only and parses source at most once after release`() {
+        val reloadCount = AtomicInteger()
+        val unrelatedReloadCount = AtomicInteger()
+        val baseClass = dev.kensa.example.JavaTestInterface::class.java
+        val unrelatedClass = dev.kensa.example.JavaTestWithVariousParameterCombinations::class.java
+        val parsedClass = parsedClassCountingReloadsIn(baseClass, reloadCount)
+        val unrelatedParsedClass = parsedClassCountingReloadsIn(unrelatedClass, unrelatedReloadCount)
+        val cache = RealParserCache().apply {
+            parsedClassCache[baseClass] = mutableMapOf(baseClass to lazyOf(parsedClass))
+            parsedClassCache[unrelatedClass] = mutableMapOf(unrelatedClass to lazyOf(unrelatedParsedClass))
+        }
+        val signature = ParsedClass.Signature("interfaceTestMethod", emptyList())
+
+        cache.releaseParseTrees(dev.kensa.example.JavaTestFromInterface::class.java)
+        parsedClass.testMethodDeclarationFor(signature).shouldNotBeNull()
+        parsedClass.testMethodDeclarationFor(signature).shouldNotBeNull()
+        unrelatedParsedClass.testMethodDeclarationFor(ParsedClass.Signature("similarNameTest", emptyList()))
+
+        reloadCount.get() shouldBe 1
+        unrelatedReloadCount.get() shouldBe 0
+    }
+
+    private fun parsedClassCountingReloadsIn(testClass: Class<*>, reloadCount: AtomicInteger) =
+        ParsedClass(
+            JavaParserDelegate.findMethodDeclarationsIn(testClass),
+            emptyMap(),
+            { JavaParserDelegate.findMethodDeclarationsIn(testClass).also { reloadCount.incrementAndGet() } }
+        ) { _, _ -> emptyMap() }
+
+    private fun parserRecordingParseTreeIn(parseTree: AtomicReference<WeakReference<ParseTree>>): MethodParser {
+        val recordingDelegate = object : ParserDelegate by JavaParserDelegate {
+            override fun findMethodDeclarationsIn(testClass: Class<out Any>) =
+                JavaParserDelegate.findMethodDeclarationsIn(testClass).also { parseTree.set(WeakReference(it.first.first().body)) }
+        }
+
+        return object : MethodParser, ParserCache by RealParserCache(), ParserDelegate by recordingDelegate {
+            override val toSimpleTypeName: (Class<*>) -> String = { it.simpleName }
+        }
+    }
+
+    private fun isCollected(reference: WeakReference<*>): Boolean {
+        repeat(20) {
+            System.gc()
+            if (reference.get() == null) return true
+            Thread.sleep(50)
+        }
+        return false
+    }
+
     @Test
     internal fun `parses interface method`() {
         val expectedSentence = Sentence(
@@ -104,4 +104,32 @@ internal class StateMachineTest {
     internal fun `throws on illegal transitions`() {
         shouldThrowExactly<IllegalStateException> { stateMachine.transition(Event4) }
     }
-}
\ No newline at end of file
+
+    @Test
+    internal fun `matches states and events sharing a class by their predicates`() {
+        data class Counter(val count: Int)
+
+        val counter = aStateMachine<Counter, String> {
+            initialState = Counter(0)
+
+            state(Matcher.any<Counter>().where { count < 2 }) {
+                on(Matcher.any<String>().where { this == "up" }) { state, _ -> Counter(state.count + 1) }
+                on(Matcher.any<String>().where { this == "down" }) { state, _ -> Counter(state.count - 1) }
+            }
+
+            state(Counter(2)) {
+                on("down") { state, _ -> Counter(state.count - 1) }
+            }
+        }
+
+        counter.transition("up")
+        counter.transition("up")
+        counter.state shouldBe Counter(2)
+
+        shouldThrowExactly<IllegalStateException> { counter.transition("up") }
+
+        counter.transition("down")
+        counter.transition("down")
+        counter.state shouldBe Counter(0)
+    }
+}
@@ -2,6 +2,7 @@ package dev.kensa.render
 
 import dev.kensa.render.Language.PlainText
 import dev.kensa.render.Language.Xml
+import dev.kensa.state.CapturedSummary
 import dev.kensa.util.Attributes
 import dev.kensa.util.Attributes.Companion.emptyAttributes
 import dev.kensa.util.NamedValue
@@ -32,6 +33,12 @@ internal class InteractionRenderersTest {
             }
     }
 
+    @Test
+    fun `renders summaries of interactions left out as they appear on the diagram`() {
+        renderers.renderInteraction(CapturedSummary(1234), emptyAttributes())
+            .shouldContainExactly(RenderedInteraction("Summary", "...and 1,234 more..."))
+    }
+
     @Test
     fun `renders interaction and attributes with specified renderer`() {
         renderers.addInteractionRenderer(Long::class, object : InteractionRenderer<Long> {
@@ -24,6 +24,18 @@ internal class ValueRenderersTest {
         renderers.renderValue(100) shouldBe "100"
     }
 
+    @Test
+    internal fun `uses renderers added after value has already been rendered`() {
+        renderers.renderValue(100) shouldBe "100"
+
+        renderers.addValueRenderer(Int::class) { value -> "<$value>" }
+        renderers.renderValue(100) shouldBe "<100>"
+
+        renderers.addValueRenderer(Number::class) { value -> "<<$value>>" }
+        renderers.renderValue(100) shouldBe "<100>"
+        renderers.renderValue(100L) shouldBe "<<100>>"
+    }
+
     @Test
     internal fun `can find value renderer for simple kotlin type`() {
         renderers.addValueRenderer(Int::class) { value -> "<$value>" }
@@ -0,0 +1,44 @@
+package dev.kensa.render.diagram
+
+import dev.kensa.state.CapturedInteractionBuilder.Companion.from
+import dev.kensa.state.CapturedInteractions
+import dev.kensa.state.Party
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.nulls.shouldNotBeNull
+import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.string.shouldStartWith
+import org.junit.jupiter.api.Test
+
+internal class SequenceDiagramFactoryTest {
+
+    @Test
+    internal fun `creates no diagram when there are no interactions`() {
+        SequenceDiagramFactory.create(CapturedInteractions()).shouldBeNull()
+    }
+
+    @Test
+    internal fun `renders svg for captured interactions`() {
+        val interactions = CapturedInteractions().apply {
+            capture(from(TestParty.Client).to(TestParty.Server).with("request", "Request"))
+            capture(from(TestParty.Server).to(TestParty.Client).with("response", "Response"))
+        }
+
+        val diagrams = (1..20).map { SequenceDiagramFactory.create(interactions) }
+        SequenceDiagramFactory.awaitRendering()
+
+        diagrams.forEach { diagram ->
+            with(diagram.toString()) {
+                diagram.shouldNotBeNull()
+                shouldStartWith("<?xml")
+                shouldContain("Request")
+                shouldContain("Response")
+            }
+        }
+    }
+
+    private enum class TestParty : Party {
+        Client, Server;
+
+        override fun asString(): String = name
+    }
+}
@@ -0,0 +1,48 @@
+package dev.kensa.render.diagram
+
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Path
+
+internal class SvgCacheTest {
+
+    @Test
+    internal fun `evicts least recently used svg when over size limit`() {
+        // Each 10 character svg is 20 bytes, so only 2 fit
+        val cache = SvgCache(maxBytes = { 40 }, cacheDir = { null })
+
+        cache.put("a", "a".repeat(10))
+        cache.put("b", "b".repeat(10))
+        cache.get("a") shouldBe "a".repeat(10)
+        cache.put("c", "c".repeat(10))
+
+        cache.get("a") shouldBe "a".repeat(10)
+        cache.get("b").shouldBeNull()
+        cache.get("c") shouldBe "c".repeat(10)
+    }
+
+    @Test
+    internal fun `does not hold svg larger than size limit`() {
+        val cache = SvgCache(maxBytes = { 10 }, cacheDir = { null })
+
+        cache.put("a", "a".repeat(10))
+
+        cache.get("a").shouldBeNull()
+    }
+
+    @Test
+    internal fun `loads svg persisted by a previous cache`(@TempDir dir: Path) {
+        SvgCache(maxBytes = { 1024 }, cacheDir = { dir }).put("a", "<svg/>")
+
+        SvgCache(maxBytes = { 1024 }, cacheDir = { dir }).get("a") shouldBe "<svg/>"
+    }
+
+    @Test
+    internal fun `key is derived from markup`() {
+        SvgCache.keyFor("@startuml\nA -> B\n@enduml") shouldBe SvgCache.keyFor("@startuml\nA -> B\n@enduml")
+        SvgCache.keyFor("@startuml\nA -> B\n@enduml") shouldNotBe SvgCache.keyFor("@startuml\nB -> A\n@enduml")
+    }
+}
@@ -2,12 +2,16 @@ package dev.kensa.sentence.scanner
 
 import dev.kensa.kotest.shouldBe
 import dev.kensa.sentence.TokenType.Acronym
+import io.kotest.matchers.collections.shouldContainExactly
 import io.kotest.matchers.collections.shouldHaveSize
+import org.junit.jupiter.api.Test
 import org.junit.jupiter.params.ParameterizedTest
 import org.junit.jupiter.params.provider.Arguments
 import org.junit.jupiter.params.provider.Arguments.arguments
 import org.junit.jupiter.params.provider.MethodSource
+import java.util.*
 import java.util.stream.Stream
+import kotlin.random.Random
 
 internal class IndicesTest {
     @ParameterizedTest
@@ -24,6 +28,34 @@ internal class IndicesTest {
         }
     }
 
+    @Test
+    fun resolvesOverlapsAsIfEveryIndexWasSweptOnInsertion() {
+        val random = Random(42)
+        repeat(100) {
+            val input = List(random.nextInt(1, 40)) { random.nextInt(0, 50).let { start -> indexOf(start, start + random.nextInt(1, 8)) } }
+
+            Indices().run {
+                input.forEach { (_, start, end) -> put(Acronym, start, end) }
+                toList()
+            } shouldContainExactly swept(input)
+        }
+    }
+
+    // Applies the original cancellation sweep over the whole set after every insertion
+    private fun swept(input: List<Index>): List<Index> =
+        TreeSet<Index>(compareBy<Index> { it.start }.thenByDescending { it.end }).apply {
+            input.forEach { index ->
+                add(index)
+                var lastIndex: Index? = null
+                with(iterator()) {
+                    while (hasNext()) {
+                        val thisIndex = next()
+                        if (lastIndex?.cancels(thisIndex) == true) remove() else lastIndex = thisIndex
+                    }
+                }
+            }
+        }.toList()
+
     companion object {
         @JvmStatic
         fun testArguments(): Stream<Arguments> {
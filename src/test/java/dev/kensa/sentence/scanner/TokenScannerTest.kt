@@ -3,9 +3,13 @@ package dev.kensa.sentence.scanner
 import dev.kensa.sentence.Acronym
 import dev.kensa.sentence.Dictionary
 import dev.kensa.sentence.HighlightedIdentifier
+import dev.kensa.sentence.TokenType
 import dev.kensa.sentence.TokenType.Keyword
+import dev.kensa.sentence.TokenType.Word
 import io.kotest.matchers.collections.shouldBeEmpty
 import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.params.ParameterizedTest
 import org.junit.jupiter.params.provider.MethodSource
@@ -126,6 +130,16 @@ internal class TokenScannerTest {
         transformed(scanned, indices) shouldBe expected
     }
 
+    @Test
+    fun scansRepeatedAcronymsAtEachPosition() {
+        val expected = listOf("FTTC", "And", "FTTC")
+        val string = expected.joinToString("")
+        val (scanned, indices) = tokenScannerWith(acronyms).scan(string, false)
+
+        transformed(scanned, indices) shouldBe expected
+        indices.map { it.type } shouldBe listOf(TokenType.Acronym, Word, TokenType.Acronym)
+    }
+
     @ParameterizedTest
     @MethodSource("mixedCaseExamples")
     fun scansAcronymsCorrectlyWhenMixedCase(expected: List<String>) {
@@ -153,6 +167,37 @@ internal class TokenScannerTest {
         transformed(scanned, indices) shouldBe expected
     }
 
+    @ParameterizedTest
+    @MethodSource("splitExamples")
+    fun camelCaseSplitMatchesRegexSplit(string: String) {
+        TokenScanner.camelCaseSplit(string) shouldBe "(?<=[a-z])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])|(?<=[a-z])(?=[0-9])|(?<=[0-9])(?=[A-Z])".toRegex().split(string)
+    }
+
+    @Test
+    fun rescansWhenDictionaryChanges() {
+        val dictionary = Dictionary()
+        val scanner = TokenScanner(dictionary)
+
+        scanner.scan("supposeSomething", true).second.map { it.type } shouldBe listOf(Word, Word)
+
+        dictionary.putKeywords("suppose")
+
+        scanner.scan("supposeSomething", true).second.map { it.type } shouldBe listOf(Keyword, Word)
+    }
+
+    @Test
+    fun evictsTheLeastRecentlyUsedScanOnceTheMemoIsFull() {
+        val scanner = TokenScanner(Dictionary(), maxMemoSize = 2)
+        val first = scanner.scan("firstThing", false)
+        val second = scanner.scan("secondThing", false)
+
+        scanner.scan("firstThing", false) shouldBeSameInstanceAs first
+        scanner.scan("thirdThing", false)
+
+        scanner.scan("firstThing", false) shouldBeSameInstanceAs first
+        scanner.scan("secondThing", false) shouldNotBeSameInstanceAs second
+    }
+
     private fun transformed(string: String, indices: Indices): List<String> =
         indices.map { index -> string.substring(index.start, index.end) }.toList()
 
@@ -164,6 +209,10 @@ internal class TokenScannerTest {
     )
 
     companion object {
+        @JvmStatic
+        fun splitExamples(): Stream<String> =
+            Stream.of("", "a", "A", "given", "givenAThing", "last24Hours", "HTTPServer", "anHTTPServer2Go", "ABC", "x_yZ", "a1b2C3", "Über", "cameléCase", "__init__")
+
         @JvmStatic
         fun mixedCaseExamples(): Stream<List<String>> {
             return Stream.of(
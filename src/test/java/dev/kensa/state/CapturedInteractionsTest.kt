@@ -12,6 +12,8 @@ import org.junit.jupiter.api.Assertions.assertFalse
 import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
+import java.time.Duration
+import kotlin.concurrent.thread
 
 internal class CapturedInteractionsTest {
     private lateinit var interactions: CapturedInteractions
@@ -128,6 +130,147 @@ internal class CapturedInteractionsTest {
         }
     }
 
+    @Test
+    fun capturedInteractionsCarryTheirParts() {
+        with(interactions) {
+            capture(from(Jon).to(Daenerys).group("Temporary").arrowStyle(ArrowStyle.UmlResponse).with("I will not bend the knee", "Defiant statement"))
+            capture(from(Jon).to(Daenerys).with("I will not bend the knee", "Defiant statement"))
+
+            entrySet().map { it.interaction!! }.let { (first, second) ->
+                first.descriptor shouldBe "Defiant statement"
+                first.index shouldBe 0
+                first.fromParty shouldBe "Jon"
+                first.toParty shouldBe "Daenerys"
+                first.group shouldBe "Temporary"
+                first.arrowStyle shouldBe ArrowStyle.UmlResponse
+                second.name shouldBe "Defiant statement 1"
+                second.group shouldBe null
+                second.arrowStyle shouldBe ArrowStyle.UmlSynchronous
+            }
+        }
+    }
+
+    @Test
+    fun recognisesInteractionsAndMarkersPutDirectly() {
+        with(interactions) {
+            put("Defiant statement from Jon to Daenerys", "I will not bend the knee")
+            put("Foo", "...Some time later...")
+            divider("Winter")
+
+            entrySet().toList().let { (interaction, marker, divider) ->
+                interaction.interaction!!.run { Triple(name, fromParty, toParty) } shouldBe Triple("Defiant statement", "Jon", "Daenerys")
+                marker.marker shouldBe KensaMap.Marker.TimePassing
+                divider.marker shouldBe KensaMap.Marker.Divider
+            }
+        }
+    }
+
+    @Test
+    fun canQueryInteractionsByPartiesDescriptorAndType() {
+        with(interactions) {
+            capture(from(Jon).to(Daenerys).with("I will not bend the knee", "Defiant statement").with(3L))
+            capture(from(NightKing).to(Daenerys).with(42, "Snarky comment").with(2L))
+            capture(from(Jon).to(Daenerys).with("I still will not bend the knee", "Defiant statement").with(5L))
+            captureTimePassing()
+
+            between(Jon, Daenerys).count() shouldBe 2
+            between(Jon, Daenerys).latest()?.value shouldBe "I still will not bend the knee"
+            between(Jon, Daenerys).firstAfter(3L)?.value shouldBe "I still will not bend the knee"
+            between(Daenerys, Jon).count() shouldBe 0
+            withDescriptor("Snarky comment").all().map { it.value } shouldBe listOf(42)
+            ofType<String>().all().map { it.key } shouldBe listOf("Defiant statement from Jon to Daenerys", "Defiant statement 1 from Jon to Daenerys")
+            ofType(Int::class.javaObjectType).latest()?.key shouldBe "Snarky comment from NightKing to Daenerys"
+        }
+    }
+
+    @Test
+    fun replacedEntriesLeaveTheirIndexes() {
+        with(interactions) {
+            put("Defiant statement from Jon to Daenerys", "I will not bend the knee", 1L)
+            put("Defiant statement from Jon to Daenerys", 42, 1L)
+
+            ofType<String>().count() shouldBe 0
+            ofType(Int::class.javaObjectType).count() shouldBe 1
+            between(Jon, Daenerys).all().map { it.value } shouldBe listOf(42)
+        }
+    }
+
+    @Test
+    fun keepsTheFirstInteractionsOnAnEdgeAndSummarisesTheRest() {
+        with(CapturedInteractions(CapturePolicy.keepFirst(2))) {
+            (1..5).forEach { capture(from(Jon).to(Daenerys).with("Statement $it", "Defiant statement").with(it.toLong())) }
+            capture(from(NightKing).to(Daenerys).with(42, "Snarky comment").with(6L))
+
+            entrySet().map { it.value.toString() } shouldBe listOf("Statement 1", "Statement 2", "...and 3 more...", "42")
+            entrySet().toList()[2].marker shouldBe KensaMap.Marker.Summary
+            between(Jon, Daenerys).count() shouldBe 5
+            between(Jon, Daenerys).all().map { it.value } shouldBe listOf("Statement 1", "Statement 2")
+            withDescriptor("Defiant statement").count() shouldBe 5
+            ofType<String>().count() shouldBe 5
+            withDescriptor("Snarky comment").count() shouldBe 1
+        }
+    }
+
+    @Test
+    fun keepsTheLatestInteractionsOnAnEdgeAndSummarisesTheRest() {
+        with(CapturedInteractions(CapturePolicy.keepLatest(2))) {
+            val cursor = forEachPutSince(0) {}
+            (1..5).forEach { capture(from(Jon).to(Daenerys).with("Statement $it", "Defiant statement").with(it.toLong())) }
+
+            entrySet().map { it.value.toString() } shouldBe listOf("...and 3 more...", "Statement 4", "Statement 5")
+            between(Jon, Daenerys).count() shouldBe 5
+            between(Jon, Daenerys).all().map { it.value } shouldBe listOf("Statement 4", "Statement 5")
+            ofType<String>().latest()?.value shouldBe "Statement 5"
+
+            // Evicted entries and replaced summaries are not passed to a reader that has yet to reach them
+            val passed = ArrayList<Any?>()
+            forEachPutSince(cursor) { passed += it.value }
+            passed.map { it.toString() } shouldBe listOf("Statement 4", "Statement 5", "...and 3 more...")
+        }
+    }
+
+    @Test
+    fun summariesAreReplacedRatherThanChangedSoEarlierSnapshotsKeepTheirCount() {
+        with(CapturedInteractions(CapturePolicy.keepFirst(1))) {
+            repeat(3) { capture(from(Jon).to(Daenerys).with("Statement $it", "Defiant statement").with(it.toLong())) }
+            val snapshot = entrySet()
+
+            capture(from(Jon).to(Daenerys).with("Statement 3", "Defiant statement").with(3L))
+
+            snapshot.map { it.value } shouldBe listOf("Statement 0", CapturedSummary(2))
+            entrySet().map { it.value } shouldBe listOf("Statement 0", CapturedSummary(3))
+        }
+    }
+
+    @Test
+    fun summariesUseThousandsSeparators() {
+        with(CapturedInteractions(CapturePolicy.keepLatest(1))) {
+            repeat(1235) { capture(from(Jon).to(Daenerys).with(it, "Count").with(it.toLong())) }
+
+            entrySet().first().value.toString() shouldBe "...and 1,234 more..."
+            between(Jon, Daenerys).count() shouldBe 1235
+        }
+    }
+
+    @Test
+    fun awaitChangeReturnsOnceSomethingIsCaptured() {
+        val version = interactions.version
+
+        thread {
+            Thread.sleep(20)
+            interactions.capture(from(Jon).to(Daenerys).with("I will not bend the knee", "Defiant statement"))
+        }
+
+        interactions.awaitChange(version, Duration.ofSeconds(10)) shouldBe version + 1
+    }
+
+    @Test
+    fun awaitChangeReturnsAfterTimeoutWhenNothingIsCaptured() {
+        val version = interactions.version
+
+        interactions.awaitChange(version, Duration.ofMillis(20)) shouldBe version
+    }
+
     internal enum class GOTParty : Party {
         Daenerys, Jon, Ygritte, NightKing;
 
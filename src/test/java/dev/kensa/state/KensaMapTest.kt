@@ -3,10 +3,13 @@ package dev.kensa.state
 import dev.kensa.util.Attributes.Companion.emptyAttributes
 import dev.kensa.util.Attributes.Companion.of
 import dev.kensa.util.KensaMap
+import dev.kensa.util.KensaMap.UniqueKey
 import dev.kensa.util.NamedValue
 import io.kotest.assertions.throwables.shouldThrowExactly
 import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
 import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.Test
 import org.junit.jupiter.params.ParameterizedTest
 import org.junit.jupiter.params.provider.MethodSource
 import java.util.concurrent.Executors
@@ -140,6 +143,41 @@ internal class KensaMapTest {
         result shouldBe listOf(1, 2, 3, 4, 5)
     }
 
+    @ParameterizedTest
+    @MethodSource("mapInstances")
+    internal fun <M : KensaMap<M>> replacingEntryKeepsItsPlaceAmongstEqualTimestamps(map: M) {
+        map.put("a", "A", 1)
+        map.put("b", "B", 1)
+        map.put("a", "A2", 1)
+        map.put("c", "C", 0)
+
+        map.entrySet().map(KensaMap.Entry::value) shouldBe listOf("C", "A2", "B")
+    }
+
+    @ParameterizedTest
+    @MethodSource("mapInstances")
+    internal fun <M : KensaMap<M>> entrySetIsSnapshotInTimestampOrder(map: M) {
+        map.put("b", "B", 2)
+        map.put("a", "A", 1)
+        val entries = map.entrySet()
+
+        map.put("c", "C", 0)
+
+        entries.map(KensaMap.Entry::value) shouldBe listOf("A", "B")
+    }
+
+    @ParameterizedTest
+    @MethodSource("mapInstances")
+    internal fun <M : KensaMap<M>> liveEntriesIsLiveViewInTimestampOrder(map: M) {
+        val entries = map.liveEntries()
+
+        map.put("b", "B", 2)
+        map.put("a", "A", 1)
+
+        entries.size shouldBe 2
+        entries.map(KensaMap.Entry::value) shouldBe listOf("A", "B")
+    }
+
     @ParameterizedTest
     @MethodSource("mapInstances")
     internal fun <M : KensaMap<M>> canPutCollectionOfNamedValues(map: M) {
@@ -153,6 +191,48 @@ internal class KensaMapTest {
         }
     }
 
+    @Test
+    internal fun parsesUniqueKeyPlaceholder() {
+        UniqueKey.parse("Message __idx __from A to B") shouldBe UniqueKey("Message ", "", " ", "from A to B")
+        UniqueKey.parse("Foo__ idx __") shouldBe UniqueKey("Foo", " ", " ", "")
+        UniqueKey.parse("a__idx__b__idx__c") shouldBe UniqueKey("a__idx__b", "", "", "c")
+        UniqueKey.parse("idx__idx__") shouldBe UniqueKey("idx", "", "", "")
+        UniqueKey.parse("Foo__id__").shouldBeNull()
+    }
+
+    @Test
+    internal fun uniqueKeyKeepsSpacingAroundIndex() {
+        with(UniqueKey.parse("Message __idx __from A to B")!!) {
+            withIndex(0) shouldBe "Message from A to B"
+            withIndex(12) shouldBe "Message 12 from A to B"
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("mapInstances")
+    internal fun <M : KensaMap<M>> putWithUniqueKeySkipsKeysAlreadyTaken(map: M) {
+        map.put("Foo 1", "explicit")
+
+        map.putWithUniqueKey("Foo__ idx __", "first")
+        map.putWithUniqueKey("Foo__ idx __", "second")
+
+        map.get<String>("Foo") shouldBe "first"
+        map.get<String>("Foo 1") shouldBe "explicit"
+        map.get<String>("Foo 2") shouldBe "second"
+    }
+
+    @ParameterizedTest
+    @MethodSource("mapInstances")
+    internal fun <M : KensaMap<M>> canPutManyValuesWithSameUniqueKey(map: M) {
+        val count = 20_000
+
+        repeat(count) { map.putWithUniqueKey("Message __idx __from A to B", it) }
+
+        map.entrySet().size shouldBe count
+        map.get<Int>("Message from A to B") shouldBe 0
+        map.get<Int>("Message ${count - 1} from A to B") shouldBe count - 1
+    }
+
     companion object {
         @JvmStatic
         fun mapInstances(): Stream<out KensaMap<*>?> {
@@ -5,6 +5,7 @@ import io.kotest.matchers.booleans.shouldBeFalse
 import io.kotest.matchers.booleans.shouldBeTrue
 import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
 import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
 import org.junit.jupiter.api.Test
 
 internal class ReflectTest {
@@ -43,6 +44,40 @@ internal class ReflectTest {
         SomeKotlinSubClass::class.isKotlinClass.shouldBeTrue()
     }
 
+    @Test
+    internal fun `normalises kotlin function names from class metadata`() {
+        val methods = SomeKotlinSubClass::class.java.declaredMethods
+
+        methods.single { it.name == "aFunction" }.normalisedName shouldBe "aFunction"
+        methods.single { it.name == "aFunctionRenamedOnTheJvm" }.normalisedName shouldBe "aRenamedFunction"
+        methods.single { it.name.startsWith("anInternalFunction$") }.normalisedName shouldBe "anInternalFunction"
+        SomeJavaSubClass::class.java.findMethod("overrideMe").normalisedName shouldBe "overrideMe"
+    }
+
+    @Test
+    internal fun `reflects each class only once`() {
+        SomeKotlinSubClass::class.java.allMethods shouldBeSameInstanceAs SomeKotlinSubClass::class.java.allMethods
+        SomeKotlinSubClass::class.java.allFields shouldBeSameInstanceAs SomeKotlinSubClass::class.java.allFields
+        SomeKotlinSubClass::class.java.allProperties shouldBeSameInstanceAs SomeKotlinSubClass::class.java.allProperties
+    }
+
+    @Test
+    internal fun `resolves each member reader only once`() {
+        val reflected = ReflectedClass.of(SomeKotlinSubClass::class.java)
+
+        reflected.readerNamed("aProperty") shouldBeSameInstanceAs reflected.readerNamed("aProperty")
+        reflected.readerNamed("aFunction") shouldBeSameInstanceAs reflected.readerNamed("aFunction")
+    }
+
+    @Test
+    internal fun `reads property values through a member reader`() {
+        val suppliedValue = "A Value"
+        val target = SomeKotlinSubClass(10, suppliedValue)
+
+        SomeKotlinSubClass::class.java.allProperties.first { it.name == "valueSupplier" }.let { MemberReader.of(it).read(target) } shouldBe suppliedValue
+        SomeKotlinSubClass::class.java.allProperties.first { it.name == "aPrivateProperty" }.let { MemberReader.of(it).read(target) } shouldBe suppliedValue
+    }
+
     @Test
     internal fun `can get a private field from a simple java object`() {
         val privateValue = "A Value"
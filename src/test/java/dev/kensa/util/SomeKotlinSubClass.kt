@@ -9,6 +9,11 @@ class SomeKotlinSubClass(integer: Int = 0, private val field1: String) : SomeKot
 
     fun aFunction() = field1
 
+    @JvmName("aFunctionRenamedOnTheJvm")
+    fun aRenamedFunction() = field1
+
+    internal fun anInternalFunction() = field1
+
     override fun overrideMe() = field1
 
     override fun renderMe(): String = field1